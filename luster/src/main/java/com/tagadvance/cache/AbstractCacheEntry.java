@@ -0,0 +1,166 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The base {@link CacheEntry cache entry}. Its write and access times are primitive
+ * {@link Ticker ticker} readings, so that creating and touching an entry allocates nothing. It
+ * also carries the {@link TimingWheel.Timer timers} that were scheduled for the entry so that they
+ * may be rescheduled or cancelled without a lookup.
+ */
+abstract class AbstractCacheEntry implements CacheEntry {
+
+	private final CacheKey key;
+
+	private volatile long writeTime;
+
+	private volatile long accessTime;
+
+	private int weight = 1;
+
+	private long loadTime;
+
+	private volatile long timeToLive = -1L;
+
+	private volatile Collection<?> tags = List.of();
+
+	private TimingWheel.Timer afterAccessTimer;
+
+	private TimingWheel.Timer afterWriteTimer;
+
+	/**
+	 * The {@link AccessOrderDeque deque} this entry belongs to, if any, and its links within it.
+	 */
+	AccessOrderDeque deque;
+
+	AbstractCacheEntry previous;
+
+	AbstractCacheEntry next;
+
+	/**
+	 * The order in which this entry was {@link OldestFirstEvictionStrategy#onInsert(CacheEntry)
+	 * inserted}, which breaks ties between entries written in the same tick.
+	 */
+	long insertion;
+
+	/**
+	 * @param key       the {@link CacheKey key}
+	 * @param writeTime the {@link Ticker#read() time} at which the entry is written
+	 */
+	AbstractCacheEntry(final CacheKey key, final long writeTime) {
+		this.key = requireNonNull(key, "key must not be null");
+		this.writeTime = writeTime;
+		this.accessTime = writeTime;
+	}
+
+	CacheKey key() {
+		return key;
+	}
+
+	@Override
+	public long writeTime() {
+		return writeTime;
+	}
+
+	/**
+	 * Moves the write, and with it the last access, to the specified time, e.g. once an
+	 * asynchronous value has completed.
+	 *
+	 * @param nanoTime the current {@link Ticker#read() time}
+	 */
+	void writeTime(final long nanoTime) {
+		this.writeTime = nanoTime;
+		this.accessTime = nanoTime;
+	}
+
+	/**
+	 * @return the {@link Ticker#read() time} of the last access
+	 */
+	long accessTime() {
+		return accessTime;
+	}
+
+	/**
+	 * Records an access. This is deliberately cheap so that it may be called on every hit.
+	 *
+	 * @param nanoTime the current {@link Ticker#read() time}
+	 */
+	void recordAccess(final long nanoTime) {
+		this.accessTime = nanoTime;
+	}
+
+	/**
+	 * @return the {@link Weigher weight} of this entry
+	 */
+	int weight() {
+		return weight;
+	}
+
+	void weight(final int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * @return the nanoseconds it took to load the value of this entry
+	 */
+	long loadTime() {
+		return loadTime;
+	}
+
+	void loadTime(final long nanos) {
+		this.loadTime = nanos;
+	}
+
+	/**
+	 * @return the nanoseconds after its {@link #writeTime() write} that this entry expires, or a
+	 * negative number if it does not expire after write
+	 */
+	long timeToLive() {
+		return timeToLive;
+	}
+
+	void timeToLive(final long nanos) {
+		this.timeToLive = nanos;
+	}
+
+	/**
+	 * @return the {@link Tagger tags} of this entry
+	 */
+	Collection<?> tags() {
+		return tags;
+	}
+
+	void tags(final Collection<?> tags) {
+		this.tags = tags;
+	}
+
+	TimingWheel.Timer afterAccessTimer() {
+		return afterAccessTimer;
+	}
+
+	void afterAccessTimer(final TimingWheel.Timer timer) {
+		this.afterAccessTimer = timer;
+	}
+
+	TimingWheel.Timer afterWriteTimer() {
+		return afterWriteTimer;
+	}
+
+	void afterWriteTimer(final TimingWheel.Timer timer) {
+		this.afterWriteTimer = timer;
+	}
+
+	/**
+	 * Cancels every {@link TimingWheel.Timer timer} that was scheduled for this entry.
+	 *
+	 * @param timingWheel the {@link TimingWheel timing wheel} the timers were scheduled on
+	 */
+	void cancelTimers(final TimingWheel timingWheel) {
+		timingWheel.cancel(afterAccessTimer);
+		timingWheel.cancel(afterWriteTimer);
+	}
+
+}
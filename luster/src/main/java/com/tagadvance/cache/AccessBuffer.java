@@ -0,0 +1,98 @@
+package com.tagadvance.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * {@link AccessBuffer} is a striped, bounded, lossy buffer of accesses. Any number of threads may
+ * {@link #offer(Object) offer} while a single thread {@link #drainTo(Consumer) drains}. Threads
+ * are spread across stripes to avoid contention; an offer that loses a race or finds its stripe
+ * full is simply dropped, which is acceptable because an access only refines the eviction order.
+ *
+ * @param <E> the type of element
+ */
+final class AccessBuffer<E> {
+
+	private static final int STRIPES = Integer.highestOneBit(
+		Runtime.getRuntime().availableProcessors() - 1) << 1;
+
+	private static final int STRIPE_SIZE = 16;
+
+	private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+	private final Stripe<E>[] stripes;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	AccessBuffer() {
+		this.stripes = new Stripe[Math.max(STRIPES, 1)];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new Stripe<>();
+		}
+	}
+
+	/**
+	 * @param e an element
+	 * @return {@code false} if the element was dropped, e.g. because the buffer should be drained
+	 */
+	boolean offer(final E e) {
+		final var hash = Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L);
+		final var stripe = stripes[hash & (stripes.length - 1)];
+
+		return stripe.offer(e);
+	}
+
+	/**
+	 * Drains every stripe. Must not be called by more than one thread at a time.
+	 *
+	 * @param consumer the {@link Consumer consumer} of each buffered element
+	 */
+	void drainTo(final Consumer<E> consumer) {
+		for (final var stripe : stripes) {
+			stripe.drainTo(consumer);
+		}
+	}
+
+	private static final class Stripe<E> {
+
+		private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+
+		private final AtomicLong head = new AtomicLong();
+
+		private final AtomicLong tail = new AtomicLong();
+
+		private boolean offer(final E e) {
+			final var t = tail.get();
+			if (t - head.get() >= STRIPE_SIZE) {
+				return false;
+			}
+
+			if (tail.compareAndSet(t, t + 1)) {
+				buffer.lazySet((int) (t & STRIPE_MASK), e);
+
+				return true;
+			}
+
+			return false;
+		}
+
+		private void drainTo(final Consumer<E> consumer) {
+			var h = head.get();
+			final var t = tail.get();
+			for (; h < t; h++) {
+				final var index = (int) (h & STRIPE_MASK);
+				final var e = buffer.get(index);
+				if (e == null) {
+					// the writer has claimed the slot but not yet filled it
+					break;
+				}
+
+				buffer.lazySet(index, null);
+				consumer.accept(e);
+			}
+			head.lazySet(h);
+		}
+
+	}
+
+}
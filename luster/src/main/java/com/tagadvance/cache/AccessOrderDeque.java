@@ -0,0 +1,115 @@
+package com.tagadvance.cache;
+
+/**
+ * {@link AccessOrderDeque} is an intrusive, doubly-linked deque of
+ * {@link AbstractCacheEntry cache entries}. The links are stored in the entries themselves, so
+ * every operation is O(1) and none of them allocate. An entry may belong to at most one deque at a
+ * time.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class AccessOrderDeque {
+
+	private AbstractCacheEntry first;
+
+	private AbstractCacheEntry last;
+
+	private int size;
+
+	/**
+	 * @param entry an {@link AbstractCacheEntry entry}
+	 * @return {@code true} if the entry belongs to this deque
+	 */
+	boolean contains(final AbstractCacheEntry entry) {
+		return entry.deque == this;
+	}
+
+	/**
+	 * Appends the entry, i.e. marks it as the most recently used.
+	 *
+	 * @param entry an {@link AbstractCacheEntry entry} that does not belong to any deque
+	 */
+	void addLast(final AbstractCacheEntry entry) {
+		entry.deque = this;
+		entry.previous = last;
+		entry.next = null;
+		if (last == null) {
+			first = entry;
+		} else {
+			last.next = entry;
+		}
+		last = entry;
+		size++;
+	}
+
+	/**
+	 * Moves the entry to the end of the deque if it belongs to this deque.
+	 *
+	 * @param entry an {@link AbstractCacheEntry entry}
+	 */
+	void moveToBack(final AbstractCacheEntry entry) {
+		if (entry != last && contains(entry)) {
+			remove(entry);
+			addLast(entry);
+		}
+	}
+
+	/**
+	 * @param entry an {@link AbstractCacheEntry entry}
+	 * @return {@code true} if the entry was removed
+	 */
+	boolean remove(final AbstractCacheEntry entry) {
+		if (!contains(entry)) {
+			return false;
+		}
+
+		final var previous = entry.previous;
+		final var next = entry.next;
+		if (previous == null) {
+			first = next;
+		} else {
+			previous.next = next;
+		}
+		if (next == null) {
+			last = previous;
+		} else {
+			next.previous = previous;
+		}
+		entry.deque = null;
+		entry.previous = null;
+		entry.next = null;
+		size--;
+
+		return true;
+	}
+
+	/**
+	 * @return the least recently used entry, or {@code null} if the deque is empty
+	 */
+	AbstractCacheEntry peekFirst() {
+		return first;
+	}
+
+	/**
+	 * Removes and returns the least recently used entry.
+	 *
+	 * @return the least recently used entry, or {@code null} if the deque is empty
+	 */
+	AbstractCacheEntry pollFirst() {
+		final var entry = first;
+		if (entry != null) {
+			remove(entry);
+		}
+
+		return entry;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+}
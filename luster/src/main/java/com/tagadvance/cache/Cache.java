@@ -19,6 +19,13 @@ public interface Cache {
 	 */
 	int size();
 
+	/**
+	 * @return the total {@link Weigher weight} of the cached values
+	 */
+	default long weightedSize() {
+		return size();
+	}
+
 	/**
 	 * Clear the cache.
 	 */
@@ -6,10 +6,16 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * The cache configuration.
+ * <p>
+ * Methods that return a {@link java.util.concurrent.CompletionStage CompletionStage} are cached
+ * asynchronously: the future is cached while it is in flight so that concurrent callers share one
+ * load, it is discarded if it completes exceptionally, and expiration and refresh are measured from
+ * the time it completes.
  */
 @Documented
 @Target({ElementType.METHOD})
@@ -40,16 +46,97 @@ public @interface CacheConfiguration {
 	 */
 	TimeUnit expireAfterWriteTimeUnit() default TimeUnit.MILLISECONDS;
 
-//	/**
-//	 * The name of the method to use to calculate the expiration from the result. Must accept one
-//	 * argument and return a {@link java.time.Duration} or {@link Long millis}.
-//	 * <p>
-//	 * .e.g. <code>"com.domain.Class#methodName"</code> or simply <code>"methodName"</code> if it
-//	 * belongs to the same interface.
-//	 *
-//	 * @return the name of the method to use to calculate the expiration from the result
-//	 */
-//	String expireAfterWriteHook() default "";
+	/**
+	 * The name of the method to use to calculate the expiration from the result. Must accept one
+	 * argument and return a {@link java.time.Duration} or {@link Long millis}. Takes precedence
+	 * over {@link #expiry()}.
+	 * <p>
+	 * .e.g. <code>"com.domain.Class#methodName"</code> or simply <code>"methodName"</code> if it
+	 * belongs to the same interface.
+	 *
+	 * @return the name of the method to use to calculate the expiration from the result
+	 */
+	String expireAfterWriteHook() default "";
+
+	/**
+	 * The {@link Expiry expiry} used to calculate the expiration of each value. The default,
+	 * {@link Expiry Expiry.class} itself, disables it.
+	 *
+	 * @return the class of the expiry
+	 */
+	Class<? extends Expiry> expiry() default Expiry.class;
+
+	/**
+	 * The {@link Tagger tagger} used to tag each value so that it may be invalidated along with
+	 * every other entry with the same tag. The default, {@link Tagger Tagger.class} itself,
+	 * disables it.
+	 *
+	 * @return the class of the tagger
+	 */
+	Class<? extends Tagger> tagger() default Tagger.class;
+
+	/**
+	 * Enables probabilistic early expiration, which prevents a stampede of misses when a popular
+	 * entry expires after write. Each hit recomputes the entry early, as a
+	 * {@link #refreshAfterWriteDelay() refresh}, with a probability that rises as expiration
+	 * approaches and with the time the entry took to load. Larger values recompute earlier; one is
+	 * a sensible default.
+	 *
+	 * @return the beta of the XFetch algorithm, or zero to disable it
+	 * @see <a href="https://www.vldb.org/pvldb/vol8/p886-vattani.pdf">Optimal Probabilistic Cache
+	 * Stampede Prevention</a>
+	 */
+	double earlyExpirationBeta() default 0D;
+
+	/**
+	 * Enables negative caching: when the method throws one of its declared checked exceptions, or
+	 * one of the {@link #negativeCacheRuntimeExceptions() chosen runtime exceptions}, the exception
+	 * is cached for this long and re-thrown to callers instead of calling the method again. This
+	 * throttles calls to a dependency that is failing.
+	 *
+	 * @return how long an exception is cached, or {@link #DISABLED}
+	 */
+	long negativeCacheDelay() default DISABLED;
+
+	/**
+	 * See Also: {@link #negativeCacheDelay()}
+	 */
+	TimeUnit negativeCacheTimeUnit() default TimeUnit.MILLISECONDS;
+
+	/**
+	 * @return the runtime exceptions that are cached in addition to the declared checked
+	 * exceptions
+	 * @see #negativeCacheDelay()
+	 */
+	Class<? extends RuntimeException>[] negativeCacheRuntimeExceptions() default {};
+
+	/**
+	 * Enables stale-if-error: an entry that expires is kept in a grace area for this long, and if
+	 * loading its replacement throws, the expired value is served instead of the exception. Values
+	 * that are evicted or removed for any reason other than expiration are not kept.
+	 *
+	 * @return the maximum staleness of a value that may be served, or {@link #DISABLED}
+	 */
+	long staleIfErrorDelay() default DISABLED;
+
+	/**
+	 * See Also: {@link #staleIfErrorDelay()}
+	 */
+	TimeUnit staleIfErrorTimeUnit() default TimeUnit.MILLISECONDS;
+
+	/**
+	 * Enables bulk loading for methods shaped like {@code Map<K, V> findAll(Collection<K> keys)}.
+	 * Each key is cached as its own entry: keys that hit are served from the cache and every key
+	 * that misses is loaded with a single call to the method, which is passed only the missing
+	 * keys. Keys that are absent from the returned map are not cached.
+	 * <p>
+	 * The method must accept a single {@link java.util.Collection Collection},
+	 * {@link java.util.List List}, or {@link java.util.Set Set} and return a
+	 * {@link java.util.Map Map}.
+	 *
+	 * @return {@code true} to cache each key of the collection separately
+	 */
+	boolean bulk() default false;
 
 	/**
 	 * See Also: {@link CacheBuilder#initialCapacity(int)}
@@ -62,9 +149,55 @@ public @interface CacheConfiguration {
 	int maximumSize() default Integer.MAX_VALUE;
 
 	/**
-	 * The name of a class that implements {@link EvictionStrategy}.
+	 * Eviction is performed in batches by a maintenance task on the factory's executor, so the
+	 * cache may briefly hold more than {@link #maximumSize()} entries. Once it exceeds the maximum
+	 * size by more than this many entries, the calling thread performs the eviction itself.
+	 * <p>
+	 * The default, a negative number, allows a sixteenth of the maximum size, and at least one
+	 * entry, so that a steady stream of writes is evicted by the maintenance task. Zero evicts on
+	 * the calling thread as soon as the maximum size is exceeded.
 	 *
-	 * @return the name of the method to use to calculate the expiration from the result
+	 * @return the number of entries by which the cache may exceed its maximum size
+	 */
+	int maximumSizeOvershoot() default -1;
+
+	/**
+	 * The maximum total {@link #weigher() weight} of the cached values. Unlike
+	 * {@link #maximumSize()}, a weight budget is enforced by the calling thread as soon as it is
+	 * exceeded. Both bounds apply when both are set.
+	 * <p>
+	 * See Also: {@link CacheBuilder#maximumWeight(long)}
+	 *
+	 * @return the maximum weight or {@link #DISABLED}
+	 */
+	long maximumWeight() default DISABLED;
+
+	/**
+	 * The {@link Weigher weigher} used to calculate the weight of each value against
+	 * {@link #maximumWeight()}.
+	 * <p>
+	 * See Also: {@link CacheBuilder#weigher(com.google.common.cache.Weigher)}
+	 *
+	 * @return the class of the weigher
+	 */
+	Class<? extends Weigher> weigher() default SingletonWeigher.class;
+
+	/**
+	 * The weight that this cache keeps when it draws on a
+	 * {@link DefaultCacheFactory#DefaultCacheFactory(ScheduledExecutorService, long) shared budget},
+	 * however little it benefits from it. {@link #maximumWeight()} and {@link #maximumSize()} still
+	 * cap the cache.
+	 *
+	 * @return the reserved weight
+	 */
+	long reservedWeight() default 0L;
+
+	/**
+	 * A class that implements {@link EvictionStrategy}, e.g.
+	 * {@link LeastRecentlyUsedEvictionStrategy} or {@link WindowTinyLfuEvictionStrategy} for
+	 * workloads that include scans. It must have a public constructor with no arguments.
+	 *
+	 * @return the class of the strategy that chooses which entries to evict
 	 */
 	Class<? extends EvictionStrategy> evictionStrategy() default DefaultEvictionStrategy.class;
 
@@ -74,6 +207,11 @@ public @interface CacheConfiguration {
 	boolean recordStats() default false;
 
 	/**
+	 * Entries older than this are refreshed when they are read: the reader is served the current
+	 * value while a single reload runs on the factory's
+	 * {@link DefaultCacheFactoryBuilder#withRefreshExecutor(java.util.concurrent.Executor) refresh
+	 * executor}. Entries that are not read are never refreshed.
+	 * <p>
 	 * See Also: {@link CacheBuilder#refreshAfterWrite(long, TimeUnit)}
 	 */
 	long refreshAfterWriteDelay() default DISABLED;
@@ -83,9 +221,85 @@ public @interface CacheConfiguration {
 	 */
 	TimeUnit refreshAfterWriteTimeUnit() default TimeUnit.MILLISECONDS;
 
+	/**
+	 * Compares the arguments of the method by identity rather than by
+	 * {@link java.util.Objects#deepEquals(Object, Object) equality} and holds them weakly, so that
+	 * an entry is removed once any of its arguments has been collected. This suits methods that
+	 * take large, short-lived context objects. The entries of such a cache are neither written to
+	 * {@link #diskCapacity() disk} nor to {@link CacheController#snapshot(java.io.OutputStream)
+	 * snapshots}, since identity does not survive serialization.
+	 * <p>
+	 * Arguments that are boxed or interned must not be weak keys: a boxed argument is typically a
+	 * new object on every call and is collectable as soon as the call returns, while an interned
+	 * one is never collected. Methods with primitive, boxed primitive, or {@link String} parameters
+	 * are therefore rejected; such values must not be passed to parameters of a wider type either.
+	 * <p>
+	 * See Also: {@link CacheBuilder#weakKeys()}
+	 */
+	boolean weakKeys() default false;
+
 	/**
 	 * See Also: {@link CacheBuilder#softValues()}
 	 */
 	boolean softValues() default false;
 
+	/**
+	 * See Also: {@link CacheBuilder#weakValues()}
+	 */
+	boolean weakValues() default false;
+
+	/**
+	 * Enables an off-heap tier of the specified number of bytes, which must be at least one
+	 * megabyte. Values are {@link #serializer() serialized} into direct memory when they are cached
+	 * and deserialized on every hit, so that neither the heap nor the cost of garbage collection
+	 * grows with the cache. Values that do not fit are kept on the heap; use
+	 * {@link #maximumSize()} or {@link #maximumWeight()} to keep the cache within the tier.
+	 * <p>
+	 * A value is serialized with its own class unless the method returns a parameterized type, whose
+	 * type arguments must then be concrete. A value that cannot be deserialized is dropped and
+	 * loaded again, and later values of its class are kept on the heap.
+	 * <p>
+	 * The tier does not apply to methods that return a
+	 * {@link java.util.concurrent.CompletionStage CompletionStage}.
+	 *
+	 * @return the capacity of the off-heap tier in bytes
+	 */
+	long offHeapCapacity() default DISABLED;
+
+	/**
+	 * Enables a disk tier of the specified number of bytes in {@link #diskDirectory()}. Entries
+	 * that are evicted to keep the cache within {@link #maximumSize()} or {@link #maximumWeight()}
+	 * are {@link #serializer() serialized} to memory-mapped segment files rather than discarded, and
+	 * a miss is answered from the disk tier, if it can be, before the method is invoked. Segments
+	 * are compacted once enough of them is garbage, and the oldest segment is discarded when the
+	 * tier is full. The tier survives restarts.
+	 * <p>
+	 * The tier does not apply to methods that return a
+	 * {@link java.util.concurrent.CompletionStage CompletionStage} or to values with
+	 * {@link #tagger() tags}.
+	 *
+	 * @return the capacity of the disk tier in bytes
+	 */
+	long diskCapacity() default DISABLED;
+
+	/**
+	 * The directory of the {@link #diskCapacity() disk tier}, which is shared by every cache that
+	 * names it; each cache writes to its own subdirectory. A subdirectory is locked until the
+	 * {@link CacheController#close() controller is closed}, so another instance of the same cache,
+	 * in this process or another, writes to a subdirectory of its own. A relative path is resolved
+	 * against the {@link DefaultCacheFactoryBuilder#withDiskDirectory(java.nio.file.Path) disk
+	 * directory of the factory}.
+	 *
+	 * @return the path of the directory
+	 */
+	String diskDirectory() default "";
+
+	/**
+	 * The {@link CacheSerializer serializer} of the {@link #offHeapCapacity() off-heap tier} and the
+	 * {@link #diskCapacity() disk tier}.
+	 *
+	 * @return the class of the serializer
+	 */
+	Class<? extends CacheSerializer> serializer() default GsonCacheSerializer.class;
+
 }
@@ -1,9 +1,12 @@
 package com.tagadvance.cache;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
-public interface CacheController<I> {
+public interface CacheController<I> extends AutoCloseable {
 
 	/**
 	 * @return the proxy
@@ -29,4 +32,67 @@ public interface CacheController<I> {
 	 */
 	List<Cache> getCaches(String name);
 
+	/**
+	 * Writes the keys, values, and remaining time to live of every cached entry as a gzipped
+	 * stream of binary records, with the keys and values serialized as JSON.
+	 *
+	 * @param out the stream to write the snapshot to; it is not closed
+	 * @throws IOException if the snapshot cannot be written
+	 * @see #snapshot(OutputStream, CacheSerializer)
+	 */
+	default void snapshot(final OutputStream out) throws IOException {
+		snapshot(out, new GsonCacheSerializer());
+	}
+
+	/**
+	 * Writes the keys, values, and remaining time to live of every cached entry, e.g. so that the
+	 * caches may be {@link #restore(InputStream, CacheSerializer) restored} after a restart.
+	 * Entries that are loading or have failed are skipped.
+	 *
+	 * @param out        the stream to write the snapshot to; it is not closed
+	 * @param serializer the {@link CacheSerializer serializer} of the keys and values
+	 * @throws IOException if the snapshot cannot be written or snapshots are not supported
+	 */
+	default void snapshot(final OutputStream out, final CacheSerializer serializer)
+		throws IOException {
+		throw new IOException("snapshots not supported");
+	}
+
+	/**
+	 * Restores a snapshot whose keys and values were serialized as JSON.
+	 *
+	 * @param in the stream to read the snapshot from; it is not closed
+	 * @throws IOException if the snapshot cannot be read
+	 * @see #restore(InputStream, CacheSerializer)
+	 */
+	default void restore(final InputStream in) throws IOException {
+		restore(in, new GsonCacheSerializer());
+	}
+
+	/**
+	 * Restores a {@link #snapshot(OutputStream, CacheSerializer) snapshot}, in parallel, before
+	 * the proxy is invoked. Entries that have expired since the snapshot was taken, that belong to
+	 * caches that no longer exist, or that cannot be deserialized are skipped, as are keys that
+	 * have been loaded in the meantime. The snapshot is read in batches, so it need not fit in
+	 * memory.
+	 *
+	 * @param in         the stream to read the snapshot from; it is not closed
+	 * @param serializer the {@link CacheSerializer serializer} of the keys and values
+	 * @throws IOException if the snapshot cannot be read or snapshots are not supported
+	 */
+	default void restore(final InputStream in, final CacheSerializer serializer)
+		throws IOException {
+		throw new IOException("snapshots not supported");
+	}
+
+	/**
+	 * Releases the resources of the caches, e.g. the lock on the directory of each
+	 * {@link CacheConfiguration#diskCapacity() disk tier}, so that they may be reopened. The proxy
+	 * remains usable, but its caches no longer write to disk. By default, there is nothing to
+	 * release.
+	 */
+	@Override
+	default void close() {
+	}
+
 }
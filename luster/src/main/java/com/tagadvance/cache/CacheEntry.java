@@ -1,10 +1,12 @@
 package com.tagadvance.cache;
 
-import java.time.Instant;
-
 public interface CacheEntry {
 
-	Instant creationTime();
+	/**
+	 * @return the {@link Ticker#read() time} at which this entry was written; only the difference
+	 * between two times is meaningful
+	 */
+	long writeTime();
 
 	Object value();
 
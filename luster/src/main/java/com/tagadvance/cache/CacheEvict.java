@@ -0,0 +1,47 @@
+package com.tagadvance.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Evicts the entry that a mutating method invalidates from the named caches of the same proxy,
+ * e.g.
+ * <pre>{@code
+ * @CacheConfiguration(name = "users")
+ * User findUser(long id);
+ *
+ * @CacheEvict(value = "users", keys = 0)
+ * void renameUser(long id, String name);
+ * }</pre>
+ * Only the caches whose methods accept the {@link #keys() keys} as their arguments are affected.
+ */
+@Documented
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheEvict {
+
+	/**
+	 * @return the names of the caches, as specified by {@link CacheConfiguration#name()}
+	 */
+	String[] value();
+
+	/**
+	 * @return the indices of the parameters that form the key, in order; every parameter if empty
+	 */
+	int[] keys() default {};
+
+	/**
+	 * @return {@code true} to clear the caches rather than evict a single key
+	 */
+	boolean allEntries() default false;
+
+	/**
+	 * @return {@code true} to evict before the method is invoked, even if it then throws; by
+	 * default the entry is evicted only if the method returns normally
+	 */
+	boolean beforeInvocation() default false;
+
+}
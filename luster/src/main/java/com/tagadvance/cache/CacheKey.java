@@ -2,38 +2,402 @@ package com.tagadvance.cache;
 
 import static java.util.Objects.requireNonNull;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-record CacheKey(Method method, Object[] args) {
+/**
+ * {@link CacheKey} identifies a single invocation of a cached method. Keys are specialized by arity
+ * so that the common cases of zero, one, or two arguments neither retain nor walk an argument
+ * array. The hash is computed once, when the key is created, and the method is reduced to an
+ * interned {@link #methodId(Method) id} so that equality is an integer comparison followed by a
+ * comparison of the arguments.
+ */
+abstract sealed class CacheKey permits CacheKey.Key0, CacheKey.Key1, CacheKey.Key2, CacheKey.KeyN,
+	CacheKey.WeakKey, CacheKey.Probe {
 
-	CacheKey(final Method method, final Object[] args) {
+	private static final ConcurrentHashMap<Signature, Integer> methodIds = new ConcurrentHashMap<>();
+
+	private static final AtomicInteger nextMethodId = new AtomicInteger();
+
+	private final Method method;
+
+	final int methodId;
+
+	final int hash;
+
+	private CacheKey(final Method method, final int methodId, final int hash) {
 		this.method = requireNonNull(method, "method must not be null");
-		this.args = requireNonNull(args, "args must not be null");
+		this.methodId = methodId;
+		this.hash = hash;
+	}
+
+	/**
+	 * @param method a {@link Method method}
+	 * @param args   the method arguments
+	 * @return a new {@link CacheKey key}
+	 */
+	static CacheKey of(final Method method, final Object[] args) {
+		return of(method, methodId(method), args);
+	}
+
+	/**
+	 * @param method   a {@link Method method}
+	 * @param methodId the {@link #methodId(Method) id} of the method
+	 * @param args     the method arguments
+	 * @return a new {@link CacheKey key}
+	 */
+	static CacheKey of(final Method method, final int methodId, final Object[] args) {
+		requireNonNull(args, "args must not be null");
+
+		return switch (args.length) {
+			case 0 -> new Key0(method, methodId);
+			case 1 -> new Key1(method, methodId, args[0]);
+			case 2 -> new Key2(method, methodId, args[0], args[1]);
+			default -> new KeyN(method, methodId, args);
+		};
+	}
+
+	/**
+	 * Creates a key that compares its arguments by identity and holds them weakly. Once any of
+	 * them has been collected the key equals only itself, and its {@link ArgumentReference
+	 * reference} is enqueued so that the entry may be removed.
+	 *
+	 * @param method   a {@link Method method}
+	 * @param methodId the {@link #methodId(Method) id} of the method
+	 * @param args     the method arguments
+	 * @param queue    the {@link ReferenceQueue queue} the arguments are enqueued on once they have
+	 *                 been collected
+	 * @return a new {@link CacheKey key}
+	 * @see CacheConfiguration#weakKeys()
+	 */
+	static CacheKey weak(final Method method, final int methodId, final Object[] args,
+		final ReferenceQueue<Object> queue) {
+		requireNonNull(args, "args must not be null");
+
+		return new WeakKey(method, methodId, args, queue);
+	}
+
+	/**
+	 * Creates a key that compares its arguments by identity, and equals the {@link #weak weak key}
+	 * of the same arguments, but holds them strongly and registers no references. It is meant for
+	 * lookups, so that a hit allocates nothing but the probe; only a key that is stored needs to
+	 * be {@link Probe#weaken(ReferenceQueue) weakened}.
+	 *
+	 * @param method   a {@link Method method}
+	 * @param methodId the {@link #methodId(Method) id} of the method
+	 * @param args     the method arguments
+	 * @return a new {@link CacheKey key}
+	 */
+	static Probe probe(final Method method, final int methodId, final Object[] args) {
+		requireNonNull(args, "args must not be null");
+
+		return new Probe(method, methodId, args);
+	}
+
+	/**
+	 * Methods with the same return type, name, and parameter types share an id, e.g. the same
+	 * method declared by an interface and by its implementation. Types are identified by name, so
+	 * that the ids pin no {@link ClassLoader class loader}; a class that is reloaded keeps its ids.
+	 *
+	 * @param method a {@link Method method}
+	 * @return the interned id of the method signature
+	 */
+	static int methodId(final Method method) {
+		requireNonNull(method, "method must not be null");
+		final var parameterTypes = Arrays.stream(method.getParameterTypes())
+			.map(Class::getName)
+			.toList();
+		final var signature = new Signature(method.getReturnType().getName(), method.getName(),
+			parameterTypes);
+
+		return methodIds.computeIfAbsent(signature, s -> nextMethodId.getAndIncrement());
 	}
 
 	Method getMethod() {
 		return method;
 	}
 
+	/**
+	 * @return a copy of the method arguments
+	 */
+	abstract Object[] args();
+
 	@Override
-	public boolean equals(final Object o) {
-		if (this == o) {
+	public final int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return "%s%s".formatted(method.getName(), Arrays.deepToString(args()));
+	}
+
+	private static int hash(final int methodId, final Object arg) {
+		return 31 * methodId + CacheUtils.deepHashCode(arg);
+	}
+
+	private record Signature(String returnType, String name, List<String> parameterTypes) {
+
+	}
+
+	static final class Key0 extends CacheKey {
+
+		private Key0(final Method method, final int methodId) {
+			super(method, methodId, methodId);
+		}
+
+		@Override
+		Object[] args() {
+			return new Object[0];
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return this == o || o instanceof final Key0 key && methodId == key.methodId;
+		}
+
+	}
+
+	static final class Key1 extends CacheKey {
+
+		private final Object arg;
+
+		private Key1(final Method method, final int methodId, final Object arg) {
+			super(method, methodId, hash(methodId, arg));
+			this.arg = arg;
+		}
+
+		@Override
+		Object[] args() {
+			return new Object[]{arg};
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			return o instanceof final Key1 key && hash == key.hash && methodId == key.methodId
+				&& Objects.deepEquals(arg, key.arg);
+		}
+
+	}
+
+	static final class Key2 extends CacheKey {
+
+		private final Object arg1;
+
+		private final Object arg2;
+
+		private Key2(final Method method, final int methodId, final Object arg1,
+			final Object arg2) {
+			super(method, methodId, 31 * hash(methodId, arg1) + CacheUtils.deepHashCode(arg2));
+			this.arg1 = arg1;
+			this.arg2 = arg2;
+		}
+
+		@Override
+		Object[] args() {
+			return new Object[]{arg1, arg2};
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			return o instanceof final Key2 key && hash == key.hash && methodId == key.methodId
+				&& Objects.deepEquals(arg1, key.arg1) && Objects.deepEquals(arg2, key.arg2);
+		}
+
+	}
+
+	static final class WeakKey extends CacheKey {
+
+		/**
+		 * The arguments, each {@code null} if the argument was {@code null}.
+		 */
+		private final ArgumentReference[] args;
+
+		private WeakKey(final Method method, final int methodId, final Object[] args,
+			final ReferenceQueue<Object> queue) {
+			super(method, methodId, identityHash(methodId, args));
+			this.args = new ArgumentReference[args.length];
+			for (int i = 0; i < args.length; i++) {
+				if (args[i] != null) {
+					this.args[i] = new ArgumentReference(args[i], queue, this);
+				}
+			}
+		}
+
+		private static int identityHash(final int methodId, final Object[] args) {
+			var hash = methodId;
+			for (final var arg : args) {
+				hash = 31 * hash + System.identityHashCode(arg);
+			}
+
+			return hash;
+		}
+
+		/**
+		 * @return a copy of the method arguments, with {@code null} in place of each argument that
+		 * has been collected
+		 */
+		@Override
+		Object[] args() {
+			final var args = new Object[this.args.length];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = this.args[i] == null ? null : this.args[i].get();
+			}
+
+			return args;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) {
+				return true;
+			} else if (o instanceof final Probe probe) {
+				return probe.equals(this);
+			}
+			if (!(o instanceof final WeakKey key) || hash != key.hash || methodId != key.methodId
+				|| args.length != key.args.length) {
+				return false;
+			}
+
+			for (int i = 0; i < args.length; i++) {
+				final var arg = args[i];
+				final var other = key.args[i];
+				if (arg == null || other == null) {
+					if (arg != other) {
+						return false;
+					}
+				} else {
+					final var referent = arg.get();
+					if (referent == null || referent != other.get()) {
+						return false;
+					}
+				}
+			}
+
 			return true;
 		}
 
-		if (o instanceof final CacheKey key) {
-			return CacheUtils.methodSignatureEquals(method, key.method) && Objects.deepEquals(args,
-				key.args);
+	}
+
+	static final class Probe extends CacheKey {
+
+		private final Object[] args;
+
+		private Probe(final Method method, final int methodId, final Object[] args) {
+			super(method, methodId, WeakKey.identityHash(methodId, args));
+			this.args = args;
+		}
+
+		/**
+		 * @param queue the {@link ReferenceQueue queue} the arguments are enqueued on once they
+		 *              have been collected
+		 * @return the {@link WeakKey weak key} of the same arguments
+		 */
+		WeakKey weaken(final ReferenceQueue<Object> queue) {
+			return new WeakKey(getMethod(), methodId, args, queue);
+		}
+
+		@Override
+		Object[] args() {
+			return args.clone();
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) {
+				return true;
+			} else if (o instanceof final Probe probe) {
+				if (hash != probe.hash || methodId != probe.methodId
+					|| args.length != probe.args.length) {
+					return false;
+				}
+				for (int i = 0; i < args.length; i++) {
+					if (args[i] != probe.args[i]) {
+						return false;
+					}
+				}
+
+				return true;
+			}
+			if (!(o instanceof final WeakKey key) || hash != key.hash || methodId != key.methodId
+				|| args.length != key.args.length) {
+				return false;
+			}
+
+			for (int i = 0; i < args.length; i++) {
+				final var arg = args[i];
+				final var reference = key.args[i];
+				// a collected argument was not null, so it is not identical to any argument
+				if (arg == null ? reference != null : reference == null || reference.get() != arg) {
+					return false;
+				}
+			}
+
+			return true;
 		}
 
-		return false;
 	}
 
-	@Override
-	public int hashCode() {
-		return Objects.hash(CacheUtils.methodHashCode(method), Arrays.hashCode(args));
+	/**
+	 * A weak reference to an argument of a {@link WeakKey weak key}.
+	 */
+	static final class ArgumentReference extends WeakReference<Object> {
+
+		private final CacheKey key;
+
+		private ArgumentReference(final Object arg, final ReferenceQueue<Object> queue,
+			final CacheKey key) {
+			super(arg, queue);
+			this.key = key;
+		}
+
+		/**
+		 * @return the key whose argument is referenced
+		 */
+		CacheKey key() {
+			return key;
+		}
+
+	}
+
+	static final class KeyN extends CacheKey {
+
+		private final Object[] args;
+
+		private KeyN(final Method method, final int methodId, final Object[] args) {
+			super(method, methodId, 31 * methodId + Arrays.deepHashCode(args));
+			this.args = args;
+		}
+
+		@Override
+		Object[] args() {
+			return args.clone();
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			return o instanceof final KeyN key && hash == key.hash && methodId == key.methodId
+				&& Arrays.deepEquals(args, key.args);
+		}
+
 	}
 
 }
@@ -0,0 +1,38 @@
+package com.tagadvance.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the result of a mutating method in the named caches of the same proxy, in place of the
+ * entry that it would otherwise invalidate, e.g.
+ * <pre>{@code
+ * @CacheConfiguration(name = "users")
+ * User findUser(long id);
+ *
+ * @CachePut(value = "users", keys = 0)
+ * User renameUser(long id, String name);
+ * }</pre>
+ * A {@code null} result evicts the entry instead. Only the caches whose methods accept the
+ * {@link #keys() keys} as their arguments, and return values of the type that the mutating method
+ * returns, are affected. The mutating method must not be {@code void}.
+ */
+@Documented
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePut {
+
+	/**
+	 * @return the names of the caches, as specified by {@link CacheConfiguration#name()}
+	 */
+	String[] value();
+
+	/**
+	 * @return the indices of the parameters that form the key, in order; every parameter if empty
+	 */
+	int[] keys() default {};
+
+}
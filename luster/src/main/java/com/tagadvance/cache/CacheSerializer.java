@@ -0,0 +1,48 @@
+package com.tagadvance.cache;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link CacheSerializer serializer} converts the arguments and values of cached methods to and
+ * from bytes so that a cache may be {@link CacheController#snapshot(java.io.OutputStream) snapshot}
+ * and {@link CacheController#restore(java.io.InputStream) restored}.
+ *
+ * @see GsonCacheSerializer
+ */
+public interface CacheSerializer {
+
+	/**
+	 * @param o    an argument or value, possibly {@code null}
+	 * @param type the declared type of the argument or value
+	 * @return the serialized form
+	 * @throws IOException if the argument or value cannot be serialized
+	 */
+	byte[] serialize(final Object o, final Type type) throws IOException;
+
+	/**
+	 * @param bytes the serialized form
+	 * @param type  the declared type of the argument or value
+	 * @return the argument or value
+	 * @throws IOException if the bytes cannot be deserialized
+	 */
+	Object deserialize(final byte[] bytes, final Type type) throws IOException;
+
+	/**
+	 * Deserializes the remaining bytes of a buffer, e.g. a slice of a memory-mapped file.
+	 * Implementations should override this to read the buffer in place; by default it is copied.
+	 *
+	 * @param buffer the serialized form, which must not be modified
+	 * @param type   the declared type of the argument or value
+	 * @return the argument or value
+	 * @throws IOException if the bytes cannot be deserialized
+	 */
+	default Object deserialize(final ByteBuffer buffer, final Type type) throws IOException {
+		final var bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+
+		return deserialize(bytes, type);
+	}
+
+}
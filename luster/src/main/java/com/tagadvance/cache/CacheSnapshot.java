@@ -0,0 +1,177 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The file format of a cache snapshot: a gzipped stream of {@link Entry entries}, each prefixed by
+ * a flag so that entries may be written as they are visited.
+ */
+final class CacheSnapshot {
+
+	private static final int MAGIC = 0x4C555354;
+
+	private static final int VERSION = 1;
+
+	private CacheSnapshot() {
+
+	}
+
+	/**
+	 * A cached entry.
+	 *
+	 * @param cache          the {@link CacheConfiguration#name() name} of the cache
+	 * @param method         the {@link #descriptor(Method) descriptor} of the
+	 *                       cached method
+	 * @param args           the serialized arguments
+	 * @param value          the serialized value
+	 * @param expirationTime the {@link System#currentTimeMillis() time} at which the entry
+	 *                       expires, or a negative number if it does not expire after write
+	 */
+	record Entry(String cache, String method, byte[][] args, byte[] value, long expirationTime) {
+
+		Entry {
+			requireNonNull(cache, "cache must not be null");
+			requireNonNull(method, "method must not be null");
+			requireNonNull(args, "args must not be null");
+			requireNonNull(value, "value must not be null");
+		}
+
+	}
+
+	/**
+	 * @param method a {@link Method method}
+	 * @return the name and parameter types of the method, e.g. {@code find(java.lang.Integer)}
+	 */
+	static String descriptor(final Method method) {
+		final var parameterTypes = new ArrayList<String>();
+		for (final var parameterType : method.getParameterTypes()) {
+			parameterTypes.add(parameterType.getName());
+		}
+
+		return "%s(%s)".formatted(method.getName(), String.join(",", parameterTypes));
+	}
+
+	static Writer writer(final OutputStream out) throws IOException {
+		return new Writer(out);
+	}
+
+	/**
+	 * @param in the snapshot
+	 * @return a {@link Reader reader} of the entries of the snapshot
+	 * @throws IOException if the snapshot cannot be read or is not a snapshot
+	 */
+	static Reader reader(final InputStream in) throws IOException {
+		return new Reader(in);
+	}
+
+	private static byte[] readBytes(final DataInputStream data) throws IOException {
+		final var bytes = new byte[data.readInt()];
+		data.readFully(bytes);
+
+		return bytes;
+	}
+
+	/**
+	 * Reads a snapshot one entry at a time, so that it need not fit in memory.
+	 */
+	static final class Reader {
+
+		private final DataInputStream data;
+
+		private boolean done;
+
+		private Reader(final InputStream in) throws IOException {
+			requireNonNull(in, "in must not be null");
+			this.data = new DataInputStream(new GZIPInputStream(in));
+			if (data.readInt() != MAGIC) {
+				throw new IOException("not a cache snapshot");
+			}
+
+			final var version = data.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported cache snapshot version %d".formatted(version));
+			}
+		}
+
+		/**
+		 * @return the next entry, or {@code null} at the end of the snapshot
+		 * @throws IOException if the snapshot cannot be read
+		 */
+		Entry read() throws IOException {
+			if (done || !data.readBoolean()) {
+				done = true;
+
+				return null;
+			}
+
+			final var cache = data.readUTF();
+			final var method = data.readUTF();
+			final var args = new byte[data.readInt()][];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = readBytes(data);
+			}
+			final var value = readBytes(data);
+			final var expirationTime = data.readLong();
+
+			return new Entry(cache, method, args, value, expirationTime);
+		}
+
+	}
+
+	/**
+	 * Writes a snapshot. The snapshot is complete once the writer is {@link #close() closed}.
+	 */
+	static final class Writer implements AutoCloseable {
+
+		private final GZIPOutputStream gzip;
+
+		private final DataOutputStream data;
+
+		private Writer(final OutputStream out) throws IOException {
+			requireNonNull(out, "out must not be null");
+			this.gzip = new GZIPOutputStream(out);
+			this.data = new DataOutputStream(gzip);
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+		}
+
+		void write(final Entry entry) throws IOException {
+			data.writeBoolean(true);
+			data.writeUTF(entry.cache());
+			data.writeUTF(entry.method());
+			data.writeInt(entry.args().length);
+			for (final var arg : entry.args()) {
+				writeBytes(arg);
+			}
+			writeBytes(entry.value());
+			data.writeLong(entry.expirationTime());
+		}
+
+		private void writeBytes(final byte[] bytes) throws IOException {
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+
+		/**
+		 * Ends the snapshot without closing the underlying stream.
+		 */
+		@Override
+		public void close() throws IOException {
+			data.writeBoolean(false);
+			data.flush();
+			gzip.finish();
+		}
+
+	}
+
+}
@@ -3,32 +3,47 @@ package com.tagadvance.cache;
 import com.google.common.base.MoreObjects;
 import java.time.Duration;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
 public final class CacheStatistics {
 
-	private final AtomicLong hitCount = new AtomicLong();
+	private final LongAdder hitCount = new LongAdder();
 
-	private final AtomicLong missCount = new AtomicLong();
+	private final LongAdder missCount = new LongAdder();
 
-	private final AtomicLong loadSuccessCount = new AtomicLong();
+	private final LongAdder loadSuccessCount = new LongAdder();
 
-	private final AtomicLong loadExceptionCount = new AtomicLong();
+	private final LongAdder loadExceptionCount = new LongAdder();
 
-	private final AtomicLong loadTime = new AtomicLong();
+	private final LongAdder loadTime = new LongAdder();
 
-	private final AtomicLong evictionCount = new AtomicLong();
+	private final LongAdder loadWaiterCount = new LongAdder();
+
+	private final AtomicLong maximumLoadWaiters = new AtomicLong();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder negativeHitCount = new LongAdder();
+
+	private final LongAdder negativeLoadCount = new LongAdder();
+
+	private final LongAdder staleServedCount = new LongAdder();
+
+	private final LongAdder diskHitCount = new LongAdder();
+
+	private final LongAdder collectionCount = new LongAdder();
 
 	CacheStatistics() {
 
 	}
 
 	void hit() {
-		hitCount.incrementAndGet();
+		hitCount.increment();
 	}
 
 	void miss() {
-		missCount.incrementAndGet();
+		missCount.increment();
 	}
 
 	void loadSuccess(final Duration duration) {
@@ -37,20 +52,45 @@ public final class CacheStatistics {
 	}
 
 	void loadSuccess(final long nanos) {
-		loadSuccessCount.incrementAndGet();
-		loadTime.addAndGet(nanos);
+		loadSuccessCount.increment();
+		loadTime.add(nanos);
 	}
 
 	void loadException() {
-		loadExceptionCount.incrementAndGet();
+		loadExceptionCount.increment();
+	}
+
+	void loadWaiters(final long waiters) {
+		loadWaiterCount.add(waiters);
+		maximumLoadWaiters.accumulateAndGet(waiters, Math::max);
 	}
 
 	void eviction() {
-		evictionCount.incrementAndGet();
+		evictionCount.increment();
+	}
+
+	void negativeHit() {
+		negativeHitCount.increment();
+	}
+
+	void negativeLoad() {
+		negativeLoadCount.increment();
+	}
+
+	void staleServed() {
+		staleServedCount.increment();
+	}
+
+	void diskHit() {
+		diskHitCount.increment();
+	}
+
+	void collection() {
+		collectionCount.increment();
 	}
 
 	public long hitCount() {
-		return hitCount.get();
+		return hitCount.sum();
 	}
 
 	public double hitRate() {
@@ -61,7 +101,7 @@ public final class CacheStatistics {
 	}
 
 	public long missCount() {
-		return missCount.get();
+		return missCount.sum();
 	}
 
 	public double missRate() {
@@ -72,11 +112,11 @@ public final class CacheStatistics {
 	}
 
 	public long loadSuccessCount() {
-		return loadSuccessCount.get();
+		return loadSuccessCount.sum();
 	}
 
 	public long loadExceptionCount() {
-		return loadExceptionCount.get();
+		return loadExceptionCount.sum();
 	}
 
 	public double loadSuccessRate() {
@@ -93,8 +133,35 @@ public final class CacheStatistics {
 		);
 	}
 
+	/**
+	 * @return the number of callers that waited for a load already in flight rather than load the
+	 * value themselves
+	 */
+	public long loadWaiterCount() {
+		return loadWaiterCount.sum();
+	}
+
+	/**
+	 * @return the greatest number of callers that waited for a single load
+	 */
+	public long maximumLoadWaiters() {
+		return maximumLoadWaiters.get();
+	}
+
+	/**
+	 * @return the average number of callers that waited for each load
+	 */
+	public double averageLoadWaiters() {
+		final var loadCount = loadSuccessCount() + loadExceptionCount();
+		if (loadCount == 0) {
+			return 0D;
+		}
+
+		return (double) loadWaiterCount() / (double) loadCount;
+	}
+
 	public long totalLoadTime() {
-		return loadTime.get();
+		return loadTime.sum();
 	}
 
 	public double averageLoadTime() {
@@ -106,11 +173,53 @@ public final class CacheStatistics {
 	}
 
 	public long totalRequestCount() {
-		return hitCount.get() + loadSuccessCount.get() + loadExceptionCount.get();
+		return hitCount() + negativeHitCount() + loadSuccessCount() + loadExceptionCount();
 	}
 
 	public long evictionCount() {
-		return evictionCount.get();
+		return evictionCount.sum();
+	}
+
+	/**
+	 * @return the number of calls that were answered with a cached exception
+	 * @see CacheConfiguration#negativeCacheDelay()
+	 */
+	public long negativeHitCount() {
+		return negativeHitCount.sum();
+	}
+
+	/**
+	 * @return the number of exceptions that were cached
+	 * @see CacheConfiguration#negativeCacheDelay()
+	 */
+	public long negativeLoadCount() {
+		return negativeLoadCount.sum();
+	}
+
+	/**
+	 * @return the number of calls that were answered with an expired value because the load failed
+	 * @see CacheConfiguration#staleIfErrorDelay()
+	 */
+	public long staleServedCount() {
+		return staleServedCount.sum();
+	}
+
+	/**
+	 * @return the number of misses that were answered by the disk tier rather than a load
+	 * @see CacheConfiguration#diskCapacity()
+	 */
+	public long diskHitCount() {
+		return diskHitCount.sum();
+	}
+
+	/**
+	 * @return the number of entries that were removed because their value was garbage collected;
+	 * these are not counted as {@link #evictionCount() evictions}
+	 * @see CacheConfiguration#softValues()
+	 * @see CacheConfiguration#weakValues()
+	 */
+	public long collectionCount() {
+		return collectionCount.sum();
 	}
 
 	public CacheStatistics plus(final CacheStatistics... others) {
@@ -122,12 +231,19 @@ public final class CacheStatistics {
 	}
 
 	private void plus(final CacheStatistics other) {
-		hitCount.addAndGet(other.hitCount.get());
-		missCount.addAndGet(other.missCount.get());
-		loadSuccessCount.addAndGet(other.loadSuccessCount.get());
-		loadExceptionCount.addAndGet(other.loadExceptionCount.get());
-		loadTime.addAndGet(other.loadTime.get());
-		evictionCount.addAndGet(other.evictionCount.get());
+		hitCount.add(other.hitCount.sum());
+		missCount.add(other.missCount.sum());
+		loadSuccessCount.add(other.loadSuccessCount.sum());
+		loadExceptionCount.add(other.loadExceptionCount.sum());
+		loadTime.add(other.loadTime.sum());
+		loadWaiterCount.add(other.loadWaiterCount.sum());
+		maximumLoadWaiters.accumulateAndGet(other.maximumLoadWaiters.get(), Math::max);
+		evictionCount.add(other.evictionCount.sum());
+		negativeHitCount.add(other.negativeHitCount.sum());
+		negativeLoadCount.add(other.negativeLoadCount.sum());
+		staleServedCount.add(other.staleServedCount.sum());
+		diskHitCount.add(other.diskHitCount.sum());
+		collectionCount.add(other.collectionCount.sum());
 	}
 
 	@Override
@@ -142,7 +258,14 @@ public final class CacheStatistics {
 			.add("loadSuccessRate", loadSuccessRate())
 			.add("loadExceptionRate", loadExceptionRate())
 			.add("loadTime", totalLoadTime())
+			.add("loadWaiterCount", loadWaiterCount())
+			.add("maximumLoadWaiters", maximumLoadWaiters())
 			.add("evictionCount", evictionCount())
+			.add("negativeHitCount", negativeHitCount())
+			.add("negativeLoadCount", negativeLoadCount())
+			.add("staleServedCount", staleServedCount())
+			.add("diskHitCount", diskHitCount())
+			.add("collectionCount", collectionCount())
 			.add("totalRequestCount", totalRequestCount())
 			.toString();
 	}
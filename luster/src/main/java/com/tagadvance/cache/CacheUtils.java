@@ -35,6 +35,20 @@ final class CacheUtils {
 			Arrays.hashCode(method.getParameterTypes()));
 	}
 
+	/**
+	 * @param o an object, possibly an array
+	 * @return a hash code that is consistent with {@link Objects#deepEquals(Object, Object)}
+	 */
+	static int deepHashCode(final Object o) {
+		if (o == null) {
+			return 0;
+		} else if (!o.getClass().isArray()) {
+			return o.hashCode();
+		}
+
+		return Arrays.deepHashCode(new Object[]{o});
+	}
+
 	static boolean methodSignatureEquals(final Method method, final Method otherMethod) {
 		// TODO: research method.getAnnotatedReturnType() and method.getGenericReturnType()
 		return Objects.equals(method.getReturnType(), otherMethod.getReturnType())
@@ -0,0 +1,36 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Ticker ticker} that returns the reading of another ticker as of its last
+ * {@link #update() update}, so that a read is a single volatile load. It is only as precise as it
+ * is updated.
+ */
+final class CoarseTicker implements Ticker {
+
+	private final Ticker ticker;
+
+	private volatile long nanos;
+
+	/**
+	 * @param ticker the {@link Ticker ticker} to read on each update
+	 */
+	CoarseTicker(final Ticker ticker) {
+		this.ticker = requireNonNull(ticker, "ticker must not be null");
+		this.nanos = ticker.read();
+	}
+
+	@Override
+	public long read() {
+		return nanos;
+	}
+
+	/**
+	 * Reads the underlying ticker.
+	 */
+	void update() {
+		nanos = ticker.read();
+	}
+
+}
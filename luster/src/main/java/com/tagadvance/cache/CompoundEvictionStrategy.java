@@ -24,4 +24,19 @@ public final class CompoundEvictionStrategy implements EvictionStrategy {
 		strategies.forEach(strategy -> strategy.evict(entries, limit));
 	}
 
+	@Override
+	public void onInsert(final CacheEntry entry) {
+		strategies.forEach(strategy -> strategy.onInsert(entry));
+	}
+
+	@Override
+	public void onAccess(final CacheEntry entry) {
+		strategies.forEach(strategy -> strategy.onAccess(entry));
+	}
+
+	@Override
+	public void onRemove(final CacheEntry entry) {
+		strategies.forEach(strategy -> strategy.onRemove(entry));
+	}
+
 }
@@ -1,27 +1,18 @@
 package com.tagadvance.cache;
 
-import java.time.Instant;
-import java.util.Optional;
+class DefaultCacheEntry extends AbstractCacheEntry {
 
-class DefaultCacheEntry implements CacheEntry {
-
-	private final Instant creationTime;
 	private final Object value;
 
-	DefaultCacheEntry(final Object value) {
-		this(null, value);
+	DefaultCacheEntry(final CacheKey key, final Object value) {
+		this(key, Ticker.system().read(), value);
 	}
 
-	public DefaultCacheEntry(final Instant creationTime, final Object value) {
-		this.creationTime = Optional.ofNullable(creationTime).orElseGet(Instant::now);
+	DefaultCacheEntry(final CacheKey key, final long writeTime, final Object value) {
+		super(key, writeTime);
 		this.value = value;
 	}
 
-	@Override
-	public Instant creationTime() {
-		return creationTime;
-	}
-
 	@Override
 	public Object value() {
 		return value;
@@ -2,6 +2,7 @@ package com.tagadvance.cache;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.primitives.Primitives;
 import com.tagadvance.proxy.Invocation;
 import com.tagadvance.proxy.InvocationInterceptor;
 import com.tagadvance.proxy.InvocationProxy;
@@ -9,16 +10,51 @@ import com.tagadvance.reflection.M;
 import com.tagadvance.reflection.ReflectionException;
 import com.tagadvance.utilities.Benchmark;
 import com.tagadvance.utilities.Once;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,25 +63,169 @@ public final class DefaultCacheFactory implements CacheFactory {
 
 	private static final Logger log = LoggerFactory.getLogger(DefaultCacheFactory.class);
 
+	/**
+	 * The resolution, in milliseconds, of the {@link TimingWheel timing wheel} that drives
+	 * expiration.
+	 */
+	private static final long TICK_MILLIS = 10L;
+
+	/**
+	 * How often, in milliseconds, the {@link SharedBudget shared budget} is rebalanced.
+	 */
+	private static final long REBALANCE_MILLIS = 1000L;
+
+	/**
+	 * The most entries with collected values that a miss removes; maintenance removes the rest.
+	 */
+	private static final int COLLECTED_DRAIN_LIMIT = 16;
+
+	/**
+	 * The most entries of a snapshot that are held in memory, and restored in parallel, at once.
+	 */
+	private static final int RESTORE_BATCH_SIZE = 1024;
+
 	private final ScheduledExecutorService executor;
 
+	private final Executor refreshExecutor;
+
+	private final Ticker ticker;
+
+	private final Runnable startTicker;
+
+	private final TimingWheel timingWheel;
+
+	private final Runnable startTimingWheel;
+
+	private final SharedBudget sharedBudget;
+
+	/**
+	 * The directory that relative {@link CacheConfiguration#diskDirectory() disk directories} are
+	 * resolved against.
+	 */
+	private final Path diskDirectory;
+
+	private final Runnable startRebalancing;
+
+	/**
+	 * The entries of every cache created by this factory, by {@link Tagger tag}.
+	 */
+	private final ConcurrentHashMap<Object, Set<Tagged>> tagIndex = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of {@link #invalidateTag(Object) tag invalidations}, so that a load can tell
+	 * whether one has raced with it.
+	 */
+	private final AtomicLong tagInvalidations = new AtomicLong();
+
 	public DefaultCacheFactory() {
 		this(Executors.newSingleThreadScheduledExecutor());
 	}
 
 	public DefaultCacheFactory(final ScheduledExecutorService executor) {
+		this(executor, null, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Every cache created by this factory draws on one budget, in addition to its own
+	 * {@link CacheConfiguration#maximumWeight() maximum weight} and
+	 * {@link CacheConfiguration#maximumSize() maximum size}. Space is periodically moved to the
+	 * caches that would turn the most misses into hits with it.
+	 *
+	 * @param executor     the executor that runs maintenance
+	 * @param sharedBudget the total {@link Weigher weight} shared by every cache; for caches
+	 *                     without a weigher this is a number of entries
+	 */
+	public DefaultCacheFactory(final ScheduledExecutorService executor, final long sharedBudget) {
+		this(executor, new SharedBudget(sharedBudget), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param executor        the executor that runs maintenance
+	 * @param sharedBudget    the {@link SharedBudget shared budget}, if any
+	 * @param refreshExecutor the executor that runs refreshes
+	 */
+	DefaultCacheFactory(final ScheduledExecutorService executor, final SharedBudget sharedBudget,
+		final Executor refreshExecutor) {
+		this(executor, sharedBudget, refreshExecutor, Ticker.system(), false, Path.of(""));
+	}
+
+	/**
+	 * @param executor        the executor that runs maintenance
+	 * @param sharedBudget    the {@link SharedBudget shared budget}, if any
+	 * @param refreshExecutor the executor that runs refreshes
+	 * @param ticker          the {@link Ticker ticker} that entries and expiration are timed by
+	 * @param coarse          whether to read the ticker once per tick of the timing wheel rather
+	 *                        than on every write and hit
+	 * @param diskDirectory   the directory that relative disk directories are resolved against
+	 * @see DefaultCacheFactoryBuilder
+	 */
+	DefaultCacheFactory(final ScheduledExecutorService executor, final SharedBudget sharedBudget,
+		final Executor refreshExecutor, final Ticker ticker, final boolean coarse,
+		final Path diskDirectory) {
 		this.executor = requireNonNull(executor, "executor must not be null");
+		this.refreshExecutor = requireNonNull(refreshExecutor,
+			"refreshExecutor must not be null");
+		this.diskDirectory = requireNonNull(diskDirectory, "diskDirectory must not be null");
+		requireNonNull(ticker, "ticker must not be null");
+		if (coarse) {
+			final var coarseTicker = new CoarseTicker(ticker);
+			this.ticker = coarseTicker;
+			this.startTicker = Once.runnable(
+				() -> executor.scheduleWithFixedDelay(coarseTicker::update, TICK_MILLIS,
+					TICK_MILLIS, TimeUnit.MILLISECONDS));
+		} else {
+			this.ticker = ticker;
+			this.startTicker = () -> {
+			};
+		}
+		this.timingWheel = new TimingWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, this.ticker::read);
+		this.startTimingWheel = Once.runnable(
+			() -> executor.scheduleWithFixedDelay(timingWheel::advance, TICK_MILLIS, TICK_MILLIS,
+				TimeUnit.MILLISECONDS));
+		this.sharedBudget = sharedBudget;
+		this.startRebalancing = Once.runnable(
+			() -> executor.scheduleWithFixedDelay(sharedBudget::rebalance, REBALANCE_MILLIS,
+				REBALANCE_MILLIS, TimeUnit.MILLISECONDS));
 	}
 
 	@Override
 	public <T, I extends T> CacheController<I> newCache(final Class<I> instanceType,
 		final T instance) {
-		final var callback = new ReadThroughOperation();
+		startTicker.run();
+		final var callback = new ReadThroughOperation(instanceType, instance);
 		final var proxy = InvocationProxy.createProxy(instanceType, instance, callback);
 
 		return new DefaultCacheController<>(callback, proxy);
 	}
 
+	/**
+	 * Invalidates every entry with the specified {@link Tagger tag}, in every cache created by
+	 * this factory, in time proportional to the number of entries with the tag. A tagged value
+	 * that was loading at the time is returned to its caller but not cached.
+	 *
+	 * @param tag a tag
+	 */
+	public void invalidateTag(final Object tag) {
+		requireNonNull(tag, "tag must not be null");
+
+		// counted first, so that a load either sees the count or is indexed in time to be removed
+		tagInvalidations.incrementAndGet();
+		final var tagged = tagIndex.remove(tag);
+		if (tagged != null) {
+			tagged.forEach(t -> t.cache().invalidate(t.entry()));
+		}
+	}
+
+	/**
+	 * Fires the timers that are due, as the timing wheel does on every tick, so that a test may
+	 * expire entries as soon as it has advanced a {@link ManualTicker manual ticker} past them.
+	 *
+	 * @return the number of timers that fired
+	 */
+	int advanceTimers() {
+		return timingWheel.advance();
+	}
+
 	private class DefaultCacheController<I> implements CacheController<I> {
 
 		private final ReadThroughOperation callback;
@@ -68,17 +248,79 @@ public final class DefaultCacheFactory implements CacheFactory {
 			return callback.getCaches(name);
 		}
 
+		@Override
+		public void snapshot(final OutputStream out, final CacheSerializer serializer)
+			throws IOException {
+			requireNonNull(serializer, "serializer must not be null");
+
+			try (final var writer = CacheSnapshot.writer(out)) {
+				for (final var cache : callback.getOperationCaches().toList()) {
+					cache.snapshot(writer, serializer);
+				}
+			}
+		}
+
+		@Override
+		public void restore(final InputStream in, final CacheSerializer serializer)
+			throws IOException {
+			requireNonNull(serializer, "serializer must not be null");
+
+			final var reader = CacheSnapshot.reader(in);
+			final var caches = new HashMap<String, Optional<OperationCache>>();
+			final var batch = new ArrayList<CacheSnapshot.Entry>(RESTORE_BATCH_SIZE);
+			for (var entry = reader.read(); entry != null; entry = reader.read()) {
+				final var snapshot = entry;
+				caches.computeIfAbsent(entry.cache() + "#" + entry.method(), k -> {
+					final var cache = callback.getOperationCache(snapshot.cache(),
+						snapshot.method());
+					if (cache.isEmpty()) {
+						log.warn("Cannot restore {} #{}; the cache does not exist", snapshot.cache(),
+							snapshot.method());
+					}
+
+					return cache;
+				});
+				batch.add(entry);
+				if (batch.size() == RESTORE_BATCH_SIZE) {
+					restore(batch, caches, serializer);
+				}
+			}
+			restore(batch, caches, serializer);
+		}
+
+		/**
+		 * Restores the entries of the batch in parallel and empties it.
+		 */
+		private static void restore(final List<CacheSnapshot.Entry> batch,
+			final Map<String, Optional<OperationCache>> caches, final CacheSerializer serializer) {
+			batch.parallelStream()
+				.forEach(entry -> caches.get(entry.cache() + "#" + entry.method())
+					.ifPresent(cache -> cache.restore(entry, serializer)));
+			batch.clear();
+		}
+
+		@Override
+		public void close() {
+			callback.getOperationCaches().forEach(OperationCache::close);
+		}
+
 	}
 
 	private class ReadThroughOperation implements InvocationInterceptor {
 
 		private final ConcurrentHashMap<Method, InvocationInterceptor> callbackByMethod = new ConcurrentHashMap<>();
 
-		private ReadThroughOperation() {
+		private final Class<?> instanceType;
+
+		private final Object instance;
+
+		private ReadThroughOperation(final Class<?> instanceType, final Object instance) {
+			this.instanceType = requireNonNull(instanceType, "instanceType must not be null");
+			this.instance = requireNonNull(instance, "instance must not be null");
 		}
 
 		private List<Cache> getCaches(final String name) {
-			return callbackByMethod.values().stream().filter(value -> {
+			return operations().filter(value -> {
 				if (value instanceof final Cache cache) {
 					return Objects.equals(name, cache.name());
 				}
@@ -87,31 +329,208 @@ public final class DefaultCacheFactory implements CacheFactory {
 			}).map(value -> (Cache) value).toList();
 		}
 
+		/**
+		 * The target of each method is resolved once, the first time it is invoked, and is shared
+		 * by every subsequent invocation.
+		 */
 		@Override
 		public Object onInvocation(final Invocation invocation) throws Throwable {
-			final var method = invocation.method();
+			return operation(invocation.method()).onInvocation(invocation);
+		}
+
+		private InvocationInterceptor operation(final Method method) {
+			return callbackByMethod.computeIfAbsent(method, key -> {
+				final var invoker = Invoker.resolve(key, instance);
+				final var operation = findAnnotation(key, CacheConfiguration.class)
+					.map(a -> (InvocationInterceptor) new OperationCache(a, key, instance, invoker))
+					.orElseGet(() -> new PassiveOperation(invoker));
+				final var evict = findAnnotation(key, CacheEvict.class).orElse(null);
+				final var put = findAnnotation(key, CachePut.class).orElse(null);
+				if (evict == null && put == null) {
+					return operation;
+				}
+
+				return new MutatingOperation(this, key, operation, evict, put);
+			});
+		}
+
+		private Stream<InvocationInterceptor> operations() {
+			return callbackByMethod.values()
+				.stream()
+				.map(ReadThroughOperation::unwrap);
+		}
+
+		private static InvocationInterceptor unwrap(final InvocationInterceptor value) {
+			return value instanceof final MutatingOperation mutatingOperation
+				? mutatingOperation.operation : value;
+		}
+
+		private <A extends Annotation> Optional<A> findAnnotation(final Method method,
+			final Class<A> annotationType) {
+			return M.getAnnotations(method)
+				.filter(annotationType::isInstance)
+				.map(annotationType::cast)
+				.findFirst();
+		}
+
+		private Stream<OperationCache> getOperationCaches() {
+			return operations().filter(value -> value instanceof OperationCache)
+				.map(value -> (OperationCache) value);
+		}
+
+		private Stream<OperationCache> getOperationCaches(final String name) {
+			return getOperationCaches().filter(cache -> Objects.equals(name, cache.name()));
+		}
 
-			return callbackByMethod.computeIfAbsent(method, key -> M.getAnnotations(key)
-				.filter(a -> a instanceof CacheConfiguration)
-				.map(a -> (CacheConfiguration) a)
+		/**
+		 * Creates the cache, if it has not been created yet, so that it may be restored before the
+		 * method is invoked.
+		 *
+		 * @param name       the name of the cache
+		 * @param descriptor the {@link CacheSnapshot#descriptor(Method) descriptor} of the method
+		 * @return the cache of the method, if the method exists and is cached with that name
+		 */
+		private Optional<OperationCache> getOperationCache(final String name,
+			final String descriptor) {
+			return Stream.of(instanceType.getMethods())
+				.filter(method -> descriptor.equals(CacheSnapshot.descriptor(method)))
+				.filter(method -> findAnnotation(method, CacheConfiguration.class).map(
+					CacheConfiguration::name).filter(name::equals).isPresent())
 				.findFirst()
-				.map(a -> (InvocationInterceptor) new OperationCache(a))
-				.orElseGet(PassiveOperation::getInstance)).onInvocation(invocation);
+				.map(method -> unwrap(operation(method)))
+				.filter(value -> value instanceof OperationCache)
+				.map(value -> (OperationCache) value);
+		}
+
+		/**
+		 * @param name    the name of the caches
+		 * @param keyArgs the key arguments
+		 * @return the caches with the specified name whose methods accept the key arguments
+		 */
+		private Stream<OperationCache> getOperationCaches(final String name,
+			final Object[] keyArgs) {
+			return getOperationCaches(name).filter(cache -> cache.acceptsKey(keyArgs));
+		}
+
+	}
+
+	/**
+	 * Applies the {@link CacheEvict} and {@link CachePut} annotations of a mutating method to the
+	 * caches of the same proxy.
+	 */
+	private class MutatingOperation implements InvocationInterceptor {
+
+		private final ReadThroughOperation caches;
+
+		private final InvocationInterceptor operation;
+
+		private final CacheEvict evict;
+
+		private final CachePut put;
+
+		private final Method method;
+
+		private final int[] evictKeys;
+
+		private final int[] putKeys;
+
+		private MutatingOperation(final ReadThroughOperation caches, final Method method,
+			final InvocationInterceptor operation, final CacheEvict evict, final CachePut put) {
+			this.caches = requireNonNull(caches, "caches must not be null");
+			this.operation = requireNonNull(operation, "operation must not be null");
+			this.evict = evict;
+			this.put = put;
+			this.method = requireNonNull(method, "method must not be null");
+			if (put != null && (method.getReturnType() == void.class
+				|| method.getReturnType() == Void.class)) {
+				throw new IllegalArgumentException(
+					"%s must return the value to put".formatted(method.getName()));
+			}
+			this.evictKeys = evict == null ? null : keys(method, evict.keys());
+			this.putKeys = put == null ? null : keys(method, put.keys());
+		}
+
+		private static int[] keys(final Method method, final int[] keys) {
+			final var parameterCount = method.getParameterCount();
+			if (keys.length == 0) {
+				return IntStream.range(0, parameterCount).toArray();
+			}
+
+			for (final var key : keys) {
+				if (key < 0 || key >= parameterCount) {
+					throw new IllegalArgumentException(
+						"%s has no parameter %d".formatted(method.getName(), key));
+				}
+			}
+
+			return keys.clone();
+		}
+
+		@Override
+		public Object onInvocation(final Invocation invocation) throws Throwable {
+			final var args = invocation.args();
+			if (evict != null && evict.beforeInvocation()) {
+				evict(args);
+			}
+
+			final var result = operation.onInvocation(invocation);
+			if (evict != null && !evict.beforeInvocation()) {
+				evict(args);
+			}
+			if (put != null) {
+				final var keyArgs = keyArgs(putKeys, args);
+				for (final var name : put.value()) {
+					caches.getOperationCaches(name, keyArgs)
+						.filter(cache -> cache.acceptsValuesOf(method))
+						.forEach(cache -> cache.put(keyArgs, result));
+				}
+			}
+
+			return result;
+		}
+
+		private void evict(final Object[] args) {
+			final var keyArgs = keyArgs(evictKeys, args);
+			for (final var name : evict.value()) {
+				if (evict.allEntries()) {
+					caches.getOperationCaches(name).forEach(OperationCache::clear);
+				} else {
+					caches.getOperationCaches(name, keyArgs)
+						.forEach(cache -> cache.evict(keyArgs));
+				}
+			}
+		}
+
+		private static Object[] keyArgs(final int[] keys, final Object[] args) {
+			final var keyArgs = new Object[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				keyArgs[i] = args[keys[i]];
+			}
+
+			return keyArgs;
 		}
 
 	}
 
-	private class OperationCache implements Cache, InvocationInterceptor {
+	private class OperationCache implements Cache, InvocationInterceptor, SharedBudget.Member {
 
 		private final CacheConfiguration cacheConfiguration;
 
-		private final ConcurrentHashMap<CacheKey, CacheEntry> map;
+		private final ConcurrentHashMap<CacheKey, AbstractCacheEntry> map;
 
-		private final ConcurrentHashMap<CacheKey, ScheduledFuture<?>> afterAccessFutures;
+		private final ConcurrentHashMap<CacheKey, Loading> loads = new ConcurrentHashMap<>();
 
-		private final ConcurrentHashMap<CacheKey, ScheduledFuture<?>> afterWriteFutures;
+		/**
+		 * The entries that are being refreshed, so that each is refreshed only once at a time.
+		 */
+		private final ConcurrentHashMap<CacheKey, AbstractCacheEntry> refreshes = new ConcurrentHashMap<>();
 
-		private final ConcurrentHashMap<CacheKey, ScheduledFuture<?>> refreshAfterWriteFutures;
+		/**
+		 * The grace area of expired entries that may be served if their reload fails.
+		 */
+		private final ConcurrentHashMap<CacheKey, Stale> staleEntries = new ConcurrentHashMap<>();
+
+		private final EntryCollection entries = new EntryCollection();
 
 		private final CacheEntryFactory factory;
 
@@ -120,16 +539,106 @@ public final class DefaultCacheFactory implements CacheFactory {
 
 		private final EvictionStrategy evictionStrategy;
 
-		public OperationCache(final CacheConfiguration cacheConfiguration) {
+		private final Weigher weigher;
+
+		/**
+		 * The {@link Expiry expiry} of each value, if any.
+		 */
+		private final Expiry expiry;
+
+		/**
+		 * The {@link Tagger tagger} of each value, if any.
+		 */
+		private final Tagger tagger;
+
+		private final AtomicLong weightedSize = new AtomicLong();
+
+		private final EvictionHistory evictionHistory = new EvictionHistory();
+
+		/**
+		 * The weight allotted by the {@link SharedBudget shared budget}, if any.
+		 */
+		private volatile long allowance = Long.MAX_VALUE;
+
+		private final Invoker invoker;
+
+		private final Method method;
+
+		private final int methodId;
+
+		/**
+		 * Whether the method returns a {@link CompletionStage}, whose result rather than itself
+		 * determines what is cached and for how long.
+		 */
+		private final boolean async;
+
+		/**
+		 * Copies the missing keys of a {@link CacheConfiguration#bulk() bulk} call into a
+		 * collection that the method accepts, or {@code null} if the method is not bulk.
+		 */
+		private final Function<Collection<?>, Collection<Object>> bulkArgument;
+
+		/**
+		 * The {@link CacheSerializer serializer} of the off-heap and disk tiers, if either is
+		 * enabled.
+		 */
+		private final CacheSerializer serializer;
+
+		/**
+		 * The {@link CacheConfiguration#diskCapacity() disk tier}, if any.
+		 */
+		private final DiskStore diskStore;
+
+		/**
+		 * The evicted values that are waiting to be written to the {@link #diskStore disk tier}.
+		 */
+		private final ConcurrentMap<CacheKey, Demotion> demotions = new ConcurrentHashMap<>();
+
+		/**
+		 * Whether the arguments are compared by identity and held weakly.
+		 */
+		private final boolean weakKeys;
+
+		/**
+		 * The soft and weak values and the weak arguments that have been collected.
+		 */
+		private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+		private final AccessBuffer<AbstractCacheEntry> accessBuffer = new AccessBuffer<>();
+
+		private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+
+		private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+		public OperationCache(final CacheConfiguration cacheConfiguration, final Method method,
+			final Object instance, final Invoker invoker) {
 			this.cacheConfiguration = validateConfiguration(cacheConfiguration);
+			this.method = requireNonNull(method, "method must not be null");
+			this.methodId = CacheKey.methodId(method);
+			this.weakKeys = cacheConfiguration.weakKeys();
+			if (weakKeys) {
+				checkWeakKeys(method);
+			}
+			this.async = CompletionStage.class.isAssignableFrom(method.getReturnType());
+			this.bulkArgument = cacheConfiguration.bulk() ? newBulkArgument(method) : null;
+			this.invoker = requireNonNull(invoker, "invoker must not be null");
 			final var initialCapacity = cacheConfiguration.initialCapacity();
 			this.map = new ConcurrentHashMap<>(initialCapacity);
-			this.afterAccessFutures = new ConcurrentHashMap<>(initialCapacity);
-			this.afterWriteFutures = new ConcurrentHashMap<>(initialCapacity);
-			this.refreshAfterWriteFutures = new ConcurrentHashMap<>(initialCapacity);
+			this.serializer = cacheConfiguration.offHeapCapacity() >= 0
+				|| cacheConfiguration.diskCapacity() >= 0 ? newInstance(
+				cacheConfiguration.serializer()) : null;
 			this.factory = newCacheEntryFactory();
-			final var evictionStrategy = cacheConfiguration.evictionStrategy();
-			this.evictionStrategy = newEvictionStrategy(evictionStrategy);
+			this.diskStore = newDiskStore();
+			this.evictionStrategy = newInstance(cacheConfiguration.evictionStrategy());
+			evictionStrategy.initialize(cacheConfiguration.maximumSize());
+			this.weigher = newInstance(cacheConfiguration.weigher());
+			this.expiry = newExpiry(method, instance);
+			final var tagger = cacheConfiguration.tagger();
+			this.tagger = tagger == Tagger.class ? null : newInstance(tagger);
+			if (sharedBudget != null) {
+				sharedBudget.register(this);
+				startRebalancing.run();
+			}
 		}
 
 		private CacheConfiguration validateConfiguration(
@@ -142,20 +651,204 @@ public final class DefaultCacheFactory implements CacheFactory {
 			final var writeTimeUnit = cacheConfiguration.expireAfterWriteTimeUnit();
 			final var write = writeTimeUnit.toMicros(writeDelay);
 
-			if (refresh > 0 && write > 0) {
+			if (refresh >= 0 && write >= 0 && refresh >= write) {
 				log.warn(
-					"Invalid cache configuration detected: `expireAfterWrite` and `refreshAfterWrite` are both set");
+					"Invalid cache configuration detected: `refreshAfterWrite` is not less than `expireAfterWrite`");
+			}
+
+			if (!cacheConfiguration.expireAfterWriteHook().isEmpty()
+				&& cacheConfiguration.expiry() != Expiry.class) {
+				log.warn(
+					"Invalid cache configuration detected: `expireAfterWriteHook` and `expiry` are both set");
+			}
+
+			if (cacheConfiguration.offHeapCapacity() >= 0 && (cacheConfiguration.softValues()
+				|| cacheConfiguration.weakValues())) {
+				log.warn(
+					"Invalid cache configuration detected: `offHeapCapacity` and `softValues` or `weakValues` are both set");
+			}
+
+			if (cacheConfiguration.weakKeys() && cacheConfiguration.diskCapacity() >= 0) {
+				log.warn(
+					"Invalid cache configuration detected: `weakKeys` and `diskCapacity` are both set");
+			}
+
+			if (cacheConfiguration.softValues() && cacheConfiguration.weakValues()) {
+				log.warn(
+					"Invalid cache configuration detected: `softValues` and `weakValues` are both set");
 			}
 
 			return cacheConfiguration;
 		}
 
 		private CacheEntryFactory newCacheEntryFactory() {
-			return value -> cacheConfiguration.softValues() ? new SoftCacheEntry(value)
-				: new DefaultCacheEntry(value);
+			final CacheEntryFactory heap = (key, value) -> {
+				if (cacheConfiguration.softValues()) {
+					return new SoftCacheEntry(key, ticker.read(), value, collected);
+				} else if (cacheConfiguration.weakValues()) {
+					return new WeakCacheEntry(key, ticker.read(), value, collected);
+				}
+
+				return new DefaultCacheEntry(key, ticker.read(), value);
+			};
+			final var offHeap = newOffHeapStore();
+			final CacheEntryFactory factory = offHeap == null ? heap : (key, value) -> {
+				final var entry = offHeap.newCacheEntry(key, ticker.read(), value);
+
+				return entry == null ? heap.newCacheEntry(key, value) : entry;
+			};
+			if (cacheConfiguration.weigher() == SingletonWeigher.class) {
+				return factory;
+			}
+
+			return (key, value) -> {
+				// an asynchronous value is weighed once it has completed
+				if (async && value instanceof CompletionStage<?>) {
+					return factory.newCacheEntry(key, value);
+				}
+
+				final var weight = weigh(key, value);
+				final var entry = factory.newCacheEntry(key, value);
+				entry.weight(weight);
+
+				return entry;
+			};
+		}
+
+		/**
+		 * @param value the value of the entry or, if it is asynchronous, its result
+		 */
+		private int weigh(final CacheKey key, final Object value) {
+			final var weight = weigher.weigh(key.args(), value);
+			if (weight < 0) {
+				throw new IllegalStateException(
+					"%s returned a negative weight".formatted(weigher.getClass().getName()));
+			}
+
+			return weight;
+		}
+
+		private OffHeapCacheEntry.Store newOffHeapStore() {
+			final var capacity = cacheConfiguration.offHeapCapacity();
+			if (capacity < 0 || async) {
+				return null;
+			}
+
+			return new OffHeapCacheEntry.Store(new SlabAllocator(capacity), serializer,
+				valueType());
+		}
+
+		private DiskStore newDiskStore() {
+			final var capacity = cacheConfiguration.diskCapacity();
+			if (capacity < 0 || async || cacheConfiguration.weakKeys()) {
+				return null;
+			}
+
+			final var directory = cacheConfiguration.diskDirectory();
+			if (directory.isEmpty()) {
+				throw new IllegalArgumentException(
+					"diskDirectory must be set for %s".formatted(cacheConfiguration.name()));
+			}
+
+			final var descriptor = CacheSnapshot.descriptor(method);
+			final var name = "%s-%08x".formatted(
+				cacheConfiguration.name().replaceAll("[^A-Za-z0-9._-]", "_"),
+				descriptor.hashCode());
+
+			final var codec = new DiskStore.KeyCodec() {
+				@Override
+				public byte[] encode(final CacheKey key) throws IOException {
+					final var keyTypes = keyTypes();
+					final var args = key.args();
+					final var out = new ByteArrayOutputStream();
+					final var data = new DataOutputStream(out);
+					for (int i = 0; i < args.length; i++) {
+						final var bytes = serializer.serialize(args[i], keyTypes[i]);
+						data.writeInt(bytes.length);
+						data.write(bytes);
+					}
+
+					return out.toByteArray();
+				}
+
+				@Override
+				public CacheKey decode(final ByteBuffer buffer) throws IOException {
+					final var keyTypes = keyTypes();
+					final var args = new Object[keyTypes.length];
+					for (int i = 0; i < args.length; i++) {
+						final var length = buffer.getInt();
+						args[i] = serializer.deserialize(buffer.slice(buffer.position(), length),
+							keyTypes[i]);
+						buffer.position(buffer.position() + length);
+					}
+					if (buffer.hasRemaining()) {
+						throw new IOException("expected %d arguments".formatted(args.length));
+					}
+
+					return CacheKey.of(method, methodId, args);
+				}
+			};
+
+			// another instance of the cache, in this process or another, may hold the directory
+			final var parent = diskDirectory.resolve(directory);
+			for (int i = 0; ; i++) {
+				final var path = parent.resolve(i == 0 ? name : "%s.%d".formatted(name, i));
+				try {
+					return new DiskStore(path, capacity, codec);
+				} catch (final IllegalStateException e) {
+					log.warn("{} is in use; trying the next directory for {}", path,
+						cacheConfiguration.name());
+				}
+			}
+		}
+
+		/**
+		 * Rejects parameters whose arguments are commonly boxed or interned, since identity is
+		 * meaningless for them: a boxed argument is collected as soon as the call returns, and an
+		 * interned one never is.
+		 */
+		private void checkWeakKeys(final Method method) {
+			for (final var parameterType : method.getParameterTypes()) {
+				if (parameterType.isPrimitive() || Primitives.isWrapperType(parameterType)
+					|| parameterType == String.class) {
+					throw new IllegalArgumentException("%s cannot be a weak key of %s".formatted(
+						parameterType.getSimpleName(), method.getName()));
+				}
+			}
+		}
+
+		private Function<Collection<?>, Collection<Object>> newBulkArgument(final Method method) {
+			final var parameterTypes = method.getParameterTypes();
+			if (async || parameterTypes.length != 1 || !method.getReturnType()
+				.isAssignableFrom(LinkedHashMap.class)) {
+				throw new IllegalArgumentException(
+					"bulk method %s must accept a single collection and return a map".formatted(
+						method.getName()));
+			}
+
+			final var parameterType = parameterTypes[0];
+			if (parameterType.isAssignableFrom(ArrayList.class)) {
+				return ArrayList::new;
+			} else if (parameterType.isAssignableFrom(LinkedHashSet.class)) {
+				return LinkedHashSet::new;
+			}
+
+			throw new IllegalArgumentException(
+				"bulk method %s must accept a List, Set, or Collection".formatted(method.getName()));
+		}
+
+		private Expiry newExpiry(final Method method, final Object instance) {
+			final var hook = cacheConfiguration.expireAfterWriteHook();
+			if (!hook.isEmpty()) {
+				return ExpiryHook.resolve(hook, method, instance);
+			}
+
+			final var expiry = cacheConfiguration.expiry();
+
+			return expiry == Expiry.class ? null : newInstance(expiry);
 		}
 
-		private EvictionStrategy newEvictionStrategy(final Class<? extends EvictionStrategy> c) {
+		private <T> T newInstance(final Class<? extends T> c) {
 			try {
 				return c.getDeclaredConstructor().newInstance();
 			} catch (final InvocationTargetException | InstantiationException |
@@ -177,169 +870,1162 @@ public final class DefaultCacheFactory implements CacheFactory {
 		}
 
 		@Override
-		public void clear() {
-			map.keySet().removeIf(key -> {
-				clearAllFutures(key);
+		public long weightedSize() {
+			return weightedSize.get();
+		}
 
-				return true;
-			});
+		@Override
+		public long reservedWeight() {
+			return cacheConfiguration.reservedWeight();
 		}
 
-		private void clearAllFutures(final CacheKey key) {
-			Stream.of(afterAccessFutures, afterWriteFutures, refreshAfterWriteFutures)
-				.forEach(map -> {
-					final var future = map.get(key);
-					if (future != null) {
-						future.cancel(false);
-						map.remove(key);
-					}
-				});
+		@Override
+		public long capacity() {
+			final var maximumWeight = cacheConfiguration.maximumWeight();
+			if (maximumWeight >= 0) {
+				return maximumWeight;
+			}
+
+			// without a weigher the weight of the cache is its size
+			return cacheConfiguration.weigher() == SingletonWeigher.class
+				? cacheConfiguration.maximumSize() : Long.MAX_VALUE;
 		}
 
 		@Override
-		public CacheStatistics statistics() {
-			return statisticsSupplier.get();
+		public long allowance() {
+			return allowance;
 		}
 
 		@Override
-		public Object onInvocation(final Invocation invocation) throws Throwable {
-			final var method = invocation.method();
-			final var args = invocation.args();
-			final var cacheKey = new CacheKey(method, args);
+		public void allowance(final long allowance) {
+			this.allowance = allowance;
+			if (isOverweight()) {
+				scheduleMaintenance();
+			}
+		}
 
-			expireAfterAccess(cacheKey);
+		@Override
+		public long averageWeight() {
+			final var size = map.size();
 
-			try {
-				return map.compute(cacheKey, (key, currentValue) -> {
-					if (currentValue != null) {
-						final var value = currentValue.value();
-						if (value != null) {
-							recordStats(CacheStatistics::hit);
+			return size == 0 ? 1L : weightedSize.get() / size;
+		}
 
-							return currentValue;
-						}
-					}
+		@Override
+		public long drainEvictionHistoryHits() {
+			return evictionHistory.drainHits();
+		}
 
-					recordStats(CacheStatistics::miss);
+		@Override
+		public void clear() {
+			loads.keySet().forEach(this::invalidateLoad);
+			map.values().removeIf(entry -> {
+				removed(entry);
 
-					final var instance = invocation.instance();
-					final Supplier<Object> supplier = createSupplier(method, args, instance);
-					final var value = supplier.get();
+				return true;
+			});
+			staleEntries.values().removeIf(stale -> {
+				timingWheel.cancel(stale.timer());
 
-					try {
-						return factory.newCacheEntry(value);
-					} finally {
-						expireAfterWrite(key);
+				return true;
+			});
+			if (diskStore != null) {
+				demotions.clear();
+				diskStore.clear();
+			}
+		}
 
-						refreshAfterWrite(key, supplier);
-					}
-				});
-			} catch (final ReflectionException e) {
-				throw CacheUtils.toValidException(e, method);
-			} finally {
-				runEviction();
+		@Override
+		public CacheStatistics statistics() {
+			return statisticsSupplier.get();
+		}
+
+		/**
+		 * Evicts the entry for the specified arguments, if any, including a stale value that is
+		 * being kept in case a reload fails.
+		 *
+		 * @param args the arguments of the cached method
+		 */
+		private void evict(final Object[] args) {
+			final var key = key(method, args);
+			invalidateLoad(key);
+			final var entry = map.remove(key);
+			if (entry != null) {
+				removed(entry);
+			}
+			discardStale(key);
+			if (diskStore != null) {
+				demotions.remove(key);
+				diskStore.remove(key);
 			}
 		}
 
-		private Supplier<Object> createSupplier(final Method method, final Object[] args,
-			final Object instance) {
-			final var instanceClass = instance.getClass();
-			final var matchingMethods = M.getMethods(instanceClass)
-				.filter(m -> CacheUtils.methodSignatureEquals(m, method))
-				.toList();
-			final Supplier<Object> supplier = switch (matchingMethods.size()) {
-				case 0 -> throw new ReflectionException("no matching method found",
-					new IllegalArgumentException());
-				case 1 -> {
-					final var match = matchingMethods.get(0);
+		/**
+		 * Releases the {@link DiskStore disk tier}, if any, to the next instance of the cache.
+		 */
+		private void close() {
+			if (diskStore != null) {
+				// the evicted values that are still waiting are written first
+				demotions.forEach(this::write);
+				diskStore.close();
+			}
+		}
+
+		/**
+		 * Prevents a load of the specified key that is in flight from caching its value, which the
+		 * caller is about to supersede. Callers that arrive afterwards start a new load.
+		 */
+		private void invalidateLoad(final CacheKey key) {
+			final var loading = loads.remove(key);
+			if (loading != null) {
+				loading.invalidate();
+			}
+		}
 
-					yield () -> {
-						match.trySetAccessible();
+		/**
+		 * Writes every entry that has a value, other than a cached exception or a future that has
+		 * not completed successfully, unless the cache has {@link CacheConfiguration#weakKeys() weak
+		 * keys}.
+		 */
+		private void snapshot(final CacheSnapshot.Writer writer, final CacheSerializer serializer)
+			throws IOException {
+			if (weakKeys) {
+				return;
+			}
 
-						return M.invoke(instance, args).apply(match);
-					};
+			final var descriptor = CacheSnapshot.descriptor(method);
+			final var keyTypes = keyTypes();
+			final var valueType = valueType();
+			for (final var entry : map.values()) {
+				var value = entry.value();
+				if (value instanceof final CompletionStage<?> stage && async) {
+					final var future = stage.toCompletableFuture();
+					value = future.isDone() && !future.isCompletedExceptionally() ? future.join()
+						: null;
+				}
+				if (value == null || value instanceof Failure) {
+					continue;
 				}
-				default ->
-					throw new ReflectionException("ambiguous method %s".formatted(method.getName()),
-						new IllegalArgumentException());
-			};
 
-			return cacheConfiguration.recordStats() ? () -> {
-				try {
-					return Benchmark.profile(supplier,
-						duration -> recordStats(stats -> stats.loadSuccess(duration)));
-				} catch (final RuntimeException e) {
-					recordStats(CacheStatistics::loadException);
+				final var expirationTime = expirationTime(entry);
+				if (expirationTime == 0) {
+					continue;
+				}
+
+				final var args = entry.key().args();
+				final var bytes = new byte[args.length][];
+				for (int i = 0; i < args.length; i++) {
+					bytes[i] = serializer.serialize(args[i], keyTypes[i]);
+				}
+				writer.write(new CacheSnapshot.Entry(name(), descriptor, bytes,
+					serializer.serialize(value, valueType), expirationTime));
+			}
+		}
+
+		/**
+		 * Caches an entry of a {@link #snapshot(CacheSnapshot.Writer, CacheSerializer) snapshot}
+		 * for its remaining time to live, unless the key has been loaded in the meantime.
+		 */
+		private void restore(final CacheSnapshot.Entry snapshot, final CacheSerializer serializer) {
+			var timeToLive = -1L;
+			if (snapshot.expirationTime() >= 0) {
+				final var remaining = snapshot.expirationTime() - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return;
+				}
+				timeToLive = TimeUnit.MILLISECONDS.toNanos(remaining);
+			}
+
+			final Object[] args;
+			final Object value;
+			try {
+				final var keyTypes = keyTypes();
+				if (snapshot.args().length != keyTypes.length) {
+					throw new IOException("expected %d arguments but found %d".formatted(
+						keyTypes.length, snapshot.args().length));
+				}
+
+				args = new Object[keyTypes.length];
+				for (int i = 0; i < args.length; i++) {
+					args[i] = serializer.deserialize(snapshot.args()[i], keyTypes[i]);
+				}
+				value = serializer.deserialize(snapshot.value(), valueType());
+			} catch (final IOException | RuntimeException e) {
+				final var message = "Restore failed! %s #%s".formatted(snapshot.cache(),
+					snapshot.method());
+				log.warn(message, e);
+
+				return;
+			}
+			if (value == null) {
+				return;
+			}
+
+			final var key = storable(key(method, args));
+			final var entry = factory.newCacheEntry(key,
+				async ? CompletableFuture.completedFuture(value) : value);
+			if (map.putIfAbsent(key, entry) != null) {
+				return;
+			}
+
+			inserted(entry);
+			expireAfterAccess(key, entry);
+			if (timeToLive >= 0) {
+				expireAfterWrite(key, entry, timeToLive);
+			}
+			tag(entry, value);
+
+			afterWrite();
+		}
+
+		/**
+		 * @return the {@link System#currentTimeMillis() time} at which the entry expires after
+		 * write, zero if it already has, or a negative number if it does not
+		 */
+		private long expirationTime(final AbstractCacheEntry entry) {
+			final var timeToLive = entry.timeToLive();
+			if (timeToLive < 0) {
+				return -1L;
+			}
+
+			final var remaining = timeToLive - (ticker.read() - entry.writeTime());
+			if (remaining <= 0) {
+				return 0L;
+			}
+
+			return System.currentTimeMillis() + Math.max(1L,
+				TimeUnit.NANOSECONDS.toMillis(remaining));
+		}
+
+		/**
+		 * @return the declared types of the key arguments
+		 */
+		private Type[] keyTypes() {
+			final var parameterTypes = method.getGenericParameterTypes();
+			if (bulkArgument != null) {
+				return new Type[]{typeArgument(parameterTypes[0], 0)};
+			}
+
+			return parameterTypes;
+		}
+
+		/**
+		 * @return the declared type of the values or, if they are asynchronous, of their results
+		 */
+		private Type valueType() {
+			final var returnType = method.getGenericReturnType();
+			if (bulkArgument != null) {
+				return typeArgument(returnType, 1);
+			}
+
+			return async ? typeArgument(returnType, 0) : returnType;
+		}
+
+		/**
+		 * @return whether the method of the cache has a parameter for each key argument, of a type
+		 * that the argument is an instance of
+		 */
+		private boolean acceptsKey(final Object[] keyArgs) {
+			final var keyTypes = keyTypes();
+			if (keyTypes.length != keyArgs.length) {
+				return false;
+			}
+
+			for (int i = 0; i < keyArgs.length; i++) {
+				if (keyArgs[i] != null && !Primitives.wrap(rawType(keyTypes[i]))
+					.isInstance(keyArgs[i])) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * A synchronous value may be put into an asynchronous cache, where it is completed, but not
+		 * the other way around.
+		 *
+		 * @param mutator a method annotated with {@link CachePut}
+		 * @return whether the values returned by the method may be cached by this cache
+		 */
+		private boolean acceptsValuesOf(final Method mutator) {
+			var resultType = mutator.getGenericReturnType();
+			if (CompletionStage.class.isAssignableFrom(mutator.getReturnType())) {
+				if (!async || !method.getReturnType().isAssignableFrom(mutator.getReturnType())) {
+					return false;
+				}
+				resultType = typeArgument(resultType, 0);
+			}
+
+			return Primitives.wrap(rawType(valueType()))
+				.isAssignableFrom(Primitives.wrap(rawType(resultType)));
+		}
+
+		private static Class<?> rawType(final Type type) {
+			if (type instanceof final Class<?> rawType) {
+				return rawType;
+			}
+
+			return type instanceof final ParameterizedType parameterizedType
+				&& parameterizedType.getRawType() instanceof final Class<?> rawType ? rawType
+				: Object.class;
+		}
+
+		private static Type typeArgument(final Type type, final int index) {
+			return type instanceof final ParameterizedType parameterizedType
+				? parameterizedType.getActualTypeArguments()[index] : Object.class;
+		}
+
+		/**
+		 * Removes the specified entry unless it has since been replaced.
+		 */
+		private void invalidate(final AbstractCacheEntry entry) {
+			final var key = entry.key();
+			if (map.remove(key, entry)) {
+				removed(entry);
+			}
+			discardStale(key);
+		}
+
+		/**
+		 * Caches the specified value for the specified arguments, replacing the current entry.
+		 *
+		 * @param args  the arguments of the cached method
+		 * @param value the value, or {@code null} to evict the entry
+		 */
+		private void put(final Object[] args, final Object value) {
+			if (value == null) {
+				evict(args);
+
+				return;
+			}
+
+			final var key = key(method, args);
+			invalidateLoad(key);
+			discardStale(key);
+			if (diskStore != null) {
+				demotions.remove(key);
+				diskStore.remove(key);
+			}
+			store(key, async && !(value instanceof CompletionStage<?>)
+				? CompletableFuture.completedFuture(value) : value, ticker.read(),
+				tagInvalidations.get());
+			afterWrite();
+		}
+
+		@Override
+		public Object onInvocation(final Invocation invocation) throws Throwable {
+			final var method = invocation.method();
+			final var args = invocation.args();
+			if (bulkArgument != null) {
+				try {
+					return loadAll(method, (Collection<?>) args[0]);
+				} catch (final ReflectionException e) {
+					throw CacheUtils.toValidException(e, method);
+				}
+			}
+
+			final var cacheKey = key(method, args);
+
+			// a hit is served without taking a lock; only a miss falls through to a load
+			final var entry = map.get(cacheKey);
+			if (entry != null) {
+				final var value = entry.value();
+				if (value instanceof final Failure failure) {
+					recordStats(CacheStatistics::negativeHit);
+
+					throw failure.cause();
+				} else if (value != null) {
+					recordHit(entry);
+
+					return toResult(value);
+				}
+			}
+
+			try {
+				return toResult(load(cacheKey, invocation));
+			} catch (final ReflectionException e) {
+				throw CacheUtils.toValidException(e, method);
+			}
+		}
+
+		/**
+		 * Serves each key of a {@link CacheConfiguration#bulk() bulk} call from its own entry and
+		 * loads every key that misses with a single call.
+		 */
+		private Map<Object, Object> loadAll(final Method method, final Collection<?> keys) {
+			final Map<Object, Object> result = new LinkedHashMap<>();
+			final Set<Object> missing = new LinkedHashSet<>();
+			for (final var k : keys) {
+				final var key = key(method, new Object[]{k});
+				final var entry = map.get(key);
+				final var value = entry == null ? null : entry.value();
+				if (value != null && !(value instanceof Failure)) {
+					recordHit(entry);
+					result.put(k, value);
+				} else if (!missing.contains(k)) {
+					recordStats(CacheStatistics::miss);
+					final var promoted = promote(key);
+					if (promoted != null) {
+						result.put(k, promoted);
+					} else {
+						missing.add(k);
+					}
+				}
+			}
+
+			if (missing.isEmpty()) {
+				return result;
+			}
+
+			final var start = ticker.read();
+			final var invalidations = tagInvalidations.get();
+			final var loaded = loadElements(missing);
+			loaded.forEach((k, value) -> {
+				if (value != null) {
+					store(key(method, new Object[]{k}), value, start, invalidations);
+				}
+			});
+			result.putAll(loaded);
+			afterWrite();
+
+			return result;
+		}
+
+		private Map<?, ?> loadElements(final Collection<?> keys) {
+			final var args = new Object[]{bulkArgument.apply(keys)};
+			final var loaded = (Map<?, ?>) createSupplier(args).get();
+
+			return loaded == null ? Map.of() : loaded;
+		}
+
+		/**
+		 * The timers of the entry are scheduled under its own key, since the key of the lookup may
+		 * be a {@link CacheKey.Probe probe}.
+		 */
+		private void recordHit(final AbstractCacheEntry entry) {
+			final var key = entry.key();
+			recordStats(CacheStatistics::hit);
+			final var now = ticker.read();
+			entry.recordAccess(now);
+			if (!accessBuffer.offer(entry)) {
+				scheduleMaintenance();
+			}
+
+			refreshIfStale(key, entry, now);
+			expireEarly(key, entry, now);
+		}
+
+		/**
+		 * Every caller of an asynchronous method receives its own copy of the cached future so that
+		 * no caller can complete or cancel it for the others.
+		 */
+		private Object toResult(final Object value) {
+			return async && value instanceof final CompletableFuture<?> future ? future.copy()
+				: value;
+		}
+
+		/**
+		 * Loads the value outside any map lock. Concurrent callers for the same key wait for the
+		 * load that is already in flight rather than start their own.
+		 */
+		private Object load(final CacheKey cacheKey, final Invocation invocation)
+			throws Throwable {
+			final var loading = new Loading();
+			final var inFlight = loads.putIfAbsent(cacheKey, loading);
+			if (inFlight != null) {
+				recordStats(CacheStatistics::miss);
+
+				return inFlight.await();
+			}
+
+			try {
+				final var value = loadValue(cacheKey, invocation, loading);
+				loading.complete(value);
+
+				return value;
+			} catch (final Throwable t) {
+				loading.completeExceptionally(t);
+
+				throw t;
+			} finally {
+				loads.remove(cacheKey, loading);
+				recordStats(stats -> stats.loadWaiters(loading.waiters()));
+			}
+		}
+
+		/**
+		 * The value is cached unless the load is {@link Loading#invalidate() invalidated} by an
+		 * evict or a put while it is in flight, in which case it is only returned.
+		 */
+		private Object loadValue(final CacheKey key, final Invocation invocation,
+			final Loading loading) throws Throwable {
+			// another load may have completed since the lock-free lookup
+			final var currentValue = map.get(key);
+			if (currentValue != null) {
+				final var value = currentValue.value();
+				if (value instanceof final Failure failure) {
+					recordStats(CacheStatistics::negativeHit);
+
+					throw failure.cause();
+				} else if (value != null) {
+					recordHit(currentValue);
+
+					return value;
+				}
+			}
+
+			recordStats(CacheStatistics::miss);
+			if (sharedBudget != null) {
+				evictionHistory.recordMiss(key.hashCode());
+			}
+			drainCollected(COLLECTED_DRAIN_LIMIT);
+
+			final var promoted = promote(key);
+			if (promoted != null) {
+				return promoted;
+			}
+
+			final Supplier<Object> supplier = createSupplier(invocation.args());
+			final var start = ticker.read();
+			final var invalidations = tagInvalidations.get();
+			final Object value;
+			try {
+				value = supplier.get();
+			} catch (final RuntimeException e) {
+				final var staleValue = staleValue(key);
+				if (staleValue != null) {
+					recordStats(CacheStatistics::staleServed);
+					final var message = "Load failed; serving a stale value! %s #%s(...)".formatted(
+						cacheConfiguration.name(), key.getMethod().getName());
+					log.warn(message, e);
+
+					return staleValue;
+				}
+
+				loading.runIfValid(() -> cacheFailure(key, e));
+
+				throw e;
+			}
+			final var stored = loading.runIfValid(() -> {
+				discardStale(key);
+				store(key, value, start, invalidations);
+			});
+			if (stored) {
+				afterWrite();
+			}
+
+			return value;
+		}
+
+		/**
+		 * Moves the entry for the specified key from the disk tier, if it is there, to the cache
+		 * for its remaining time to live.
+		 *
+		 * @return the value, or {@code null} if the disk tier does not have it
+		 */
+		private Object promote(final CacheKey key) {
+			if (diskStore == null) {
+				return null;
+			}
+
+			final Object value;
+			final long expirationTime;
+			// a value that has not been written yet is taken back as is
+			final var demotion = demotions.remove(key);
+			if (demotion != null) {
+				value = demotion.value();
+				expirationTime = demotion.expirationTime();
+			} else {
+				final var stored = diskStore.get(key);
+				if (stored == null) {
+					return null;
+				}
+
+				try {
+					value = serializer.deserialize(stored.value(), valueType());
+				} catch (final IOException | RuntimeException e) {
+					final var message = "Cannot read from disk! %s #%s(...)".formatted(
+						cacheConfiguration.name(), key.getMethod().getName());
+					log.warn(message, e);
+
+					return null;
+				} finally {
+					diskStore.remove(key);
+				}
+				expirationTime = stored.expirationTime();
+			}
+
+			var timeToLive = -1L;
+			if (expirationTime >= 0) {
+				final var remaining = expirationTime - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return null;
+				}
+				timeToLive = TimeUnit.MILLISECONDS.toNanos(remaining);
+			}
+			if (value == null) {
+				return null;
+			}
+
+			recordStats(CacheStatistics::diskHit);
+			discardStale(key);
+			final var entry = factory.newCacheEntry(key, value);
+			final var previous = map.put(key, entry);
+			if (previous != null) {
+				removed(previous);
+			}
+			inserted(entry);
+			expireAfterAccess(key, entry);
+			if (timeToLive >= 0) {
+				expireAfterWrite(key, entry, timeToLive);
+			}
+			tag(entry, value);
+			afterWrite();
+
+			return value;
+		}
+
+		/**
+		 * Replaces the entry for the specified key and schedules its timers.
+		 *
+		 * @param start         the {@link Ticker#read() time} at which the value began to load
+		 * @param invalidations the number of tag invalidations when the value began to load
+		 */
+		private void store(final CacheKey cacheKey, final Object value, final long start,
+			final long invalidations) {
+			final var key = storable(cacheKey);
+			final var entry = factory.newCacheEntry(key, value);
+			entry.loadTime(ticker.read() - start);
+
+			final var previous = map.put(key, entry);
+			if (previous != null) {
+				removed(previous);
+			}
+			inserted(entry);
+
+			if (async && value instanceof final CompletionStage<?> stage) {
+				// the future is shared while in flight; its age and weight start once it completes
+				stage.whenComplete((result, t) -> {
+					entry.loadTime(ticker.read() - start);
+					if (t != null) {
+						if (map.remove(key, entry)) {
+							removed(entry);
+						}
+					} else if (completed(key, entry, result)) {
+						scheduleTimers(key, entry, result);
+						tag(entry, result, invalidations);
+						afterWrite();
+					}
+				});
+			} else {
+				scheduleTimers(key, entry, value);
+				tag(entry, value, invalidations);
+			}
+		}
+
+		/**
+		 * Restarts the clock of an asynchronous entry and weighs its result, unless the entry has
+		 * been removed, in which case its weight has already been deducted.
+		 *
+		 * @return {@code true} if the entry is still cached
+		 */
+		private boolean completed(final CacheKey key, final AbstractCacheEntry entry,
+			final Object result) {
+			final int weight;
+			try {
+				weight = weigh(key, result);
+			} catch (final RuntimeException e) {
+				if (map.remove(key, entry)) {
+					removed(entry);
+				}
+
+				throw e;
+			}
+
+			final var current = map.computeIfPresent(key, (k, e) -> {
+				if (e == entry) {
+					entry.writeTime(ticker.read());
+					weightedSize.addAndGet(weight - entry.weight());
+					entry.weight(weight);
+				}
+
+				return e;
+			});
+
+			return current == entry;
+		}
+
+		/**
+		 * Caches the exception thrown by a load, if negative caching is enabled and the exception is
+		 * declared by the method or is one of the chosen runtime exceptions.
+		 */
+		private void cacheFailure(final CacheKey key, final RuntimeException e) {
+			final var delay = cacheConfiguration.negativeCacheDelay();
+			if (delay < 0) {
+				return;
+			}
+
+			final var cause = e instanceof final ReflectionException reflectionException
+				? CacheUtils.toValidException(reflectionException, key.getMethod()) : e;
+			if (!isNegativelyCacheable(key.getMethod(), cause)) {
+				return;
+			}
+
+			// a failure is never weighed or held softly; it is small and must outlive its TTL
+			final var entry = new DefaultCacheEntry(storable(key), ticker.read(),
+				new Failure(cause));
+			final var previous = map.put(entry.key(), entry);
+			if (previous != null) {
+				removed(previous);
+			}
+			inserted(entry);
+			recordStats(CacheStatistics::negativeLoad);
+
+			final var timer = new TimingWheel.Timer(() -> expire(entry.key(), entry));
+			entry.afterWriteTimer(timer);
+			schedule(timer, delay, cacheConfiguration.negativeCacheTimeUnit());
+
+			afterWrite();
+		}
+
+		private boolean isNegativelyCacheable(final Method method, final Throwable t) {
+			if (t instanceof RuntimeException) {
+				return Stream.of(cacheConfiguration.negativeCacheRuntimeExceptions())
+					.anyMatch(type -> type.isInstance(t));
+			}
+
+			return Stream.of(method.getExceptionTypes()).anyMatch(type -> type.isInstance(t));
+		}
+
+		/**
+		 * @param value the value of the entry or, if it is asynchronous, its result
+		 */
+		private void scheduleTimers(final CacheKey key, final AbstractCacheEntry entry,
+			final Object value) {
+			expireAfterAccess(key, entry);
+			expireAfterWrite(key, entry, value);
+		}
+
+		/**
+		 * Indexes the entry by its {@link Tagger tags}, if any.
+		 *
+		 * @param value the value of the entry or, if it is asynchronous, its result
+		 */
+		private void tag(final AbstractCacheEntry entry, final Object value) {
+			tag(entry, value, tagInvalidations.get());
+		}
+
+		/**
+		 * Indexes the entry by its tags, or removes it if a tag may have been invalidated since its
+		 * value began to load.
+		 *
+		 * @param invalidations the number of tag invalidations when the value began to load
+		 */
+		private void tag(final AbstractCacheEntry entry, final Object value,
+			final long invalidations) {
+			if (tagger == null) {
+				return;
+			}
+
+			final var tags = tagger.tags(entry.key().args(), value);
+			if (tags == null || tags.isEmpty()) {
+				return;
+			}
+
+			entry.tags(List.copyOf(tags));
+			final var tagged = new Tagged(this, entry);
+			for (final var tag : entry.tags()) {
+				tagIndex.compute(tag, (t, set) -> {
+					final var entries = set == null ? ConcurrentHashMap.<Tagged>newKeySet() : set;
+					entries.add(tagged);
+
+					return entries;
+				});
+			}
+
+			// the entry may have been removed before it was indexed
+			if (map.get(entry.key()) != entry) {
+				untag(entry);
+			} else if (tagInvalidations.get() != invalidations) {
+				invalidate(entry);
+			}
+		}
+
+		private void untag(final AbstractCacheEntry entry) {
+			final var tags = entry.tags();
+			if (tags.isEmpty()) {
+				return;
+			}
+
+			final var tagged = new Tagged(this, entry);
+			for (final var tag : tags) {
+				tagIndex.computeIfPresent(tag, (t, set) -> {
+					set.remove(tagged);
+
+					return set.isEmpty() ? null : set;
+				});
+			}
+		}
+
+		private Supplier<Object> createSupplier(final Object[] args) {
+			final Supplier<Object> supplier = () -> invoker.invoke(args);
+			if (async && cacheConfiguration.recordStats()) {
+				return () -> {
+					final var start = ticker.read();
+					final var value = supplier.get();
+					if (value instanceof final CompletionStage<?> stage) {
+						stage.whenComplete((result, t) -> recordStats(stats -> {
+							if (t == null) {
+								stats.loadSuccess(ticker.read() - start);
+							} else {
+								stats.loadException();
+							}
+						}));
+					}
+
+					return value;
+				};
+			}
+
+			return cacheConfiguration.recordStats() ? () -> {
+				try {
+					return Benchmark.profile(supplier,
+						duration -> recordStats(stats -> stats.loadSuccess(duration)));
+				} catch (final RuntimeException e) {
+					recordStats(CacheStatistics::loadException);
 
 					throw e;
 				}
 			} : supplier;
 		}
 
-		private void expireAfterAccess(final CacheKey key) {
+		private void expireAfterAccess(final CacheKey key, final AbstractCacheEntry entry) {
 			final var delay = cacheConfiguration.expireAfterAccessDelay();
 			if (delay < 0) {
 				return;
 			}
 
-			afterAccessFutures.compute(key, (k, v) -> {
-				if (v != null) {
-					v.cancel(false);
+			// accesses are only recorded on the entry; the timer catches up when it fires
+			final var unit = cacheConfiguration.expireAfterAccessTimeUnit();
+			final var timer = new TimingWheel.Timer(() -> {
+				final var idle = ticker.read() - entry.accessTime();
+				final var remaining = unit.toNanos(delay) - idle;
+				if (remaining > 0) {
+					schedule(entry.afterAccessTimer(), remaining, TimeUnit.NANOSECONDS);
+				} else {
+					expire(key, entry);
 				}
+			});
+			entry.afterAccessTimer(timer);
 
-				final var unit = cacheConfiguration.expireAfterAccessTimeUnit();
+			schedule(timer, delay, unit);
+		}
 
-				return executor.schedule(() -> evict(k), delay, unit);
-			});
+		private void expireAfterWrite(final CacheKey key, final AbstractCacheEntry entry,
+			final Object value) {
+			final var nanos = expireAfterWriteNanos(key, value);
+			if (nanos >= 0) {
+				expireAfterWrite(key, entry, nanos);
+			}
 		}
 
-		private void expireAfterWrite(final CacheKey key) {
+		private void expireAfterWrite(final CacheKey key, final AbstractCacheEntry entry,
+			final long nanos) {
+			final var timer = new TimingWheel.Timer(() -> expire(key, entry));
+			entry.afterWriteTimer(timer);
+			entry.timeToLive(nanos);
+
+			// the timing wheel schedules each entry in O(1) however its time to live varies
+			schedule(timer, nanos, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * @return the nanoseconds after which the value expires, or a negative number if it does
+		 * not
+		 */
+		private long expireAfterWriteNanos(final CacheKey key, final Object value) {
+			if (expiry != null) {
+				try {
+					final var duration = expiry.expireAfterWrite(key.args(), value);
+					if (duration != null) {
+						return Math.max(0L, duration.toNanos());
+					}
+				} catch (final ArithmeticException e) {
+					return Long.MAX_VALUE;
+				} catch (final RuntimeException e) {
+					final var message = "Expiry failed! %s #%s(...)".formatted(
+						cacheConfiguration.name(), key.getMethod().getName());
+					log.warn(message, e);
+				}
+			}
+
 			final var delay = cacheConfiguration.expireAfterWriteDelay();
 			if (delay < 0) {
+				return -1L;
+			}
+
+			return cacheConfiguration.expireAfterWriteTimeUnit().toNanos(delay);
+		}
+
+		private void expire(final CacheKey key, final AbstractCacheEntry entry) {
+			if (map.remove(key, entry)) {
+				// an off-heap value is released once the entry is removed
+				keepStale(key, entry);
+				removed(entry);
+				recordStats(CacheStatistics::eviction);
+			}
+		}
+
+		/**
+		 * Moves an expired entry to the grace area, if stale-if-error is enabled, until it is too
+		 * stale to be served.
+		 */
+		private void keepStale(final CacheKey key, final AbstractCacheEntry entry) {
+			final var delay = cacheConfiguration.staleIfErrorDelay();
+			final var value = entry.value();
+			if (delay < 0 || value == null || value instanceof Failure) {
 				return;
 			}
 
-			final var unit = cacheConfiguration.expireAfterWriteTimeUnit();
-			afterWriteFutures.compute(key, (k, v) -> {
-				if (v != null) {
-					v.cancel(false);
-				}
+			final var unit = cacheConfiguration.staleIfErrorTimeUnit();
+			final var deadline = ticker.read() + unit.toNanos(delay);
+			final var stale = entry instanceof OffHeapCacheEntry ? new DefaultCacheEntry(key,
+				entry.writeTime(), value) : entry;
+			final var timer = new TimingWheel.Timer(() -> discardStale(key, stale));
+			final var previous = staleEntries.put(key, new Stale(stale, deadline, timer));
+			if (previous != null) {
+				timingWheel.cancel(previous.timer());
+			}
 
-				return executor.schedule(() -> evict(k), delay, unit);
-			});
+			schedule(timer, delay, unit);
 		}
 
-		private void evict(final CacheKey key) {
-			map.remove(key);
-			recordStats(CacheStatistics::eviction);
+		/**
+		 * @return the value of the expired entry, unless it is too stale to be served
+		 */
+		private Object staleValue(final CacheKey key) {
+			final var stale = staleEntries.get(key);
+			if (stale == null || ticker.read() - stale.deadline() > 0) {
+				return null;
+			}
+
+			return stale.entry().value();
 		}
 
-		private void refreshAfterWrite(final CacheKey key, final Supplier<Object> supplier) {
-			final var refreshDelay = cacheConfiguration.refreshAfterWriteDelay();
-			if (refreshDelay < 0) {
+		private void discardStale(final CacheKey key) {
+			final var stale = staleEntries.remove(key);
+			if (stale != null) {
+				timingWheel.cancel(stale.timer());
+			}
+		}
+
+		private void discardStale(final CacheKey key, final AbstractCacheEntry entry) {
+			staleEntries.computeIfPresent(key, (k, stale) -> stale.entry() == entry ? null : stale);
+		}
+
+		/**
+		 * Starts a refresh if the entry is older than the refresh delay and is not already being
+		 * refreshed. The caller is served the current value in the meantime.
+		 */
+		private void refreshIfStale(final CacheKey key, final AbstractCacheEntry entry,
+			final long now) {
+			final var delay = cacheConfiguration.refreshAfterWriteDelay();
+			if (delay < 0) {
 				return;
 			}
 
 			final var unit = cacheConfiguration.refreshAfterWriteTimeUnit();
-			refreshAfterWriteFutures.compute(key, (k, v) -> {
-				if (v != null) {
-					v.cancel(false);
+			if (now - entry.writeTime() >= unit.toNanos(delay)) {
+				refresh(key, entry);
+			}
+		}
+
+		/**
+		 * Refreshes the entry ahead of its expiration with a probability that grows as expiration
+		 * nears and with the time the entry took to load, so that hot entries are recomputed by a
+		 * single reader before they expire rather than by every reader after.
+		 */
+		private void expireEarly(final CacheKey key, final AbstractCacheEntry entry,
+			final long now) {
+			final var beta = cacheConfiguration.earlyExpirationBeta();
+			final var timeToLive = entry.timeToLive();
+			if (beta <= 0D || timeToLive < 0) {
+				return;
+			}
+
+			final var remaining = timeToLive - (now - entry.writeTime());
+			final var random = ThreadLocalRandom.current().nextDouble();
+			if (-entry.loadTime() * beta * Math.log(random) >= remaining) {
+				refresh(key, entry);
+			}
+		}
+
+		/**
+		 * Starts a refresh unless the entry is already being refreshed.
+		 */
+		private void refresh(final CacheKey key, final AbstractCacheEntry entry) {
+			if (refreshes.putIfAbsent(key, entry) != null) {
+				return;
+			}
+
+			final Runnable done = () -> refreshes.remove(key, entry);
+			try {
+				refreshExecutor.execute(() -> refresh(key, entry, done));
+			} catch (final RuntimeException e) {
+				done.run();
+				refreshFailed(key, e);
+			}
+		}
+
+		private void refresh(final CacheKey key, final AbstractCacheEntry entry,
+			final Runnable done) {
+			try {
+				final var start = ticker.read();
+				final var invalidations = tagInvalidations.get();
+				final var value = bulkArgument == null ? createSupplier(key.args()).get()
+					: loadElements(Collections.singletonList(key.args()[0])).get(key.args()[0]);
+				if (value == null) {
+					done.run();
+
+					return;
+				} else if (async && value instanceof final CompletionStage<?> stage) {
+					// the current value is served until its replacement has completed
+					stage.whenComplete((result, t) -> {
+						try {
+							if (t == null) {
+								refreshed(key, entry, value, result, ticker.read() - start,
+									invalidations);
+							} else {
+								refreshFailed(key, t);
+							}
+						} finally {
+							done.run();
+						}
+					});
+
+					return;
 				}
 
-				return executor.schedule(() -> {
-					try {
-						final var value = supplier.get();
-						final var record = factory.newCacheEntry(value);
-						map.put(k, record);
-					} catch (final ReflectionException e) {
-						final var message = "Refresh after write failed! %s #%s(...)".formatted(
-							cacheConfiguration.name(), key.getMethod().getName());
-						log.warn(message, e);
-					}
-				}, refreshDelay, unit);
+				refreshed(key, entry, value, value, ticker.read() - start, invalidations);
+				done.run();
+			} catch (final RuntimeException e) {
+				done.run();
+				refreshFailed(key, e);
+			}
+		}
+
+		/**
+		 * Replaces the refreshed entry unless it has since been removed or replaced.
+		 */
+		private void refreshed(final CacheKey key, final AbstractCacheEntry previous,
+			final Object value, final Object result, final long loadTime,
+			final long invalidations) {
+			final var entry = factory.newCacheEntry(key, value);
+			entry.loadTime(loadTime);
+			if (value != result) {
+				entry.weight(weigh(key, result));
+			}
+			if (!map.replace(key, previous, entry)) {
+				return;
+			}
+
+			removed(previous);
+			inserted(entry);
+			scheduleTimers(key, entry, result);
+			tag(entry, result, invalidations);
+
+			afterWrite();
+		}
+
+		private void refreshFailed(final CacheKey key, final Throwable t) {
+			final var message = "Refresh failed! %s #%s(...)".formatted(
+				cacheConfiguration.name(), key.getMethod().getName());
+			log.warn(message, t);
+		}
+
+		private void inserted(final AbstractCacheEntry entry) {
+			weightedSize.addAndGet(entry.weight());
+			evictionStrategy.onInsert(entry);
+
+			// the entry may have been removed before the eviction strategy learned of it
+			if (map.get(entry.key()) != entry) {
+				evictionStrategy.onRemove(entry);
+			}
+		}
+
+		/**
+		 * Called before an evicted entry is {@link #removed(AbstractCacheEntry) removed}, while
+		 * its value may still be read.
+		 */
+		private void evicted(final AbstractCacheEntry entry) {
+			if (sharedBudget != null) {
+				evictionHistory.recordEviction(entry.key().hashCode());
+			}
+			demote(entry);
+		}
+
+		/**
+		 * Writes an evicted entry to the disk tier, if any, on the executor, so that eviction never
+		 * waits for the disk. Tagged entries are not written, so that
+		 * {@link DefaultCacheFactory#invalidateTag(Object) invalidating a tag} never misses one.
+		 */
+		private void demote(final AbstractCacheEntry entry) {
+			if (diskStore == null || !entry.tags().isEmpty()) {
+				return;
+			}
+
+			final var value = entry.value();
+			final var expirationTime = expirationTime(entry);
+			if (value == null || value instanceof Failure || expirationTime == 0) {
+				return;
+			}
+
+			final var key = entry.key();
+			final var demotion = new Demotion(value, expirationTime);
+			demotions.put(key, demotion);
+			executor.execute(() -> write(key, demotion));
+		}
+
+		/**
+		 * Writes a demoted value to the disk tier unless it has since been superseded, e.g. because
+		 * the key has been evicted or promoted.
+		 */
+		private void write(final CacheKey key, final Demotion demotion) {
+			demotions.computeIfPresent(key, (k, pending) -> {
+				if (pending != demotion) {
+					return pending;
+				}
+
+				try {
+					diskStore.put(key, serializer.serialize(demotion.value(), valueType()),
+						demotion.expirationTime());
+				} catch (final IOException | RuntimeException e) {
+					final var message = "Cannot write to disk! %s #%s(...)".formatted(
+						cacheConfiguration.name(), key.getMethod().getName());
+					log.warn(message, e);
+				}
+
+				return null;
 			});
 		}
 
+		private void removed(final AbstractCacheEntry entry) {
+			weightedSize.addAndGet(-entry.weight());
+			entry.cancelTimers(timingWheel);
+			evictionStrategy.onRemove(entry);
+			untag(entry);
+			if (entry instanceof final OffHeapCacheEntry offHeapEntry) {
+				offHeapEntry.release();
+			}
+		}
+
+		private void schedule(final TimingWheel.Timer timer, final long delay,
+			final TimeUnit unit) {
+			startTimingWheel.run();
+			timingWheel.schedule(timer, delay, unit);
+		}
+
 		private void recordStats(final Consumer<CacheStatistics> consumer) {
 			if (cacheConfiguration.recordStats()) {
 				final var stats = statisticsSupplier.get();
@@ -347,10 +2033,299 @@ public final class DefaultCacheFactory implements CacheFactory {
 			}
 		}
 
-		private void runEviction() {
-			final var values = map.values();
+		/**
+		 * Eviction is deferred to the maintenance task until the cache exceeds its maximum size by
+		 * more than the {@link CacheConfiguration#maximumSizeOvershoot() overshoot}, or its weight
+		 * budget, at which point the caller performs it unless another thread already is. Only a
+		 * cache that exceeds either by twice as much makes the caller wait for the other thread.
+		 */
+		private void afterWrite() {
+			final long size = map.size();
+			final long maximumSize = cacheConfiguration.maximumSize();
+			final var overshoot = overshoot();
+			if (size > maximumSize + overshoot || isOverweight()) {
+				final var excess = weightedSize.get() - weightLimit();
+				if (maintenanceLock.tryLock()) {
+					try {
+						runMaintenance();
+					} finally {
+						maintenanceLock.unlock();
+					}
+				} else if (size > maximumSize + 2 * overshoot || excess > weightLimit() / 16) {
+					maintenanceLock.lock();
+					try {
+						runMaintenance();
+					} finally {
+						maintenanceLock.unlock();
+					}
+				} else {
+					scheduleMaintenance();
+				}
+			} else if (size > maximumSize) {
+				scheduleMaintenance();
+			}
+		}
+
+		private long overshoot() {
+			final var overshoot = cacheConfiguration.maximumSizeOvershoot();
+
+			return overshoot >= 0 ? overshoot : Math.max(1L, cacheConfiguration.maximumSize() / 16);
+		}
+
+		private void scheduleMaintenance() {
+			if (maintenanceScheduled.compareAndSet(false, true)) {
+				executor.execute(this::performMaintenance);
+			}
+		}
+
+		private void performMaintenance() {
+			maintenanceScheduled.set(false);
+			if (maintenanceLock.tryLock()) {
+				try {
+					runMaintenance();
+				} finally {
+					maintenanceLock.unlock();
+				}
+			} else if (maintenanceScheduled.compareAndSet(false, true)) {
+				// the holder may have drained the buffers before the writes that scheduled this task
+				executor.schedule(this::performMaintenance, TICK_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		/**
+		 * Replays buffered accesses and then evicts in a single batch. Callers must hold the
+		 * maintenance lock.
+		 */
+		private void runMaintenance() {
+			drainCollected(Integer.MAX_VALUE);
+			accessBuffer.drainTo(evictionStrategy::onAccess);
+
 			final var limit = cacheConfiguration.maximumSize();
-			evictionStrategy.evict(values, limit);
+			evictionStrategy.evict(entries, limit);
+
+			// the strategy chooses victims by count, so the count is lowered until the weight fits
+			while (isOverweight() && !map.isEmpty()) {
+				final var size = map.size();
+				final var excess = weightedSize.get() - weightLimit();
+				final var averageWeight = Math.max(1L, weightedSize.get() / size);
+				final var victims = Math.max(1L, (excess + averageWeight - 1) / averageWeight);
+				evictionStrategy.evict(entries, (int) Math.max(0L, size - victims));
+				if (map.size() >= size) {
+					log.warn("{} did not evict below the weight budget of {}",
+						evictionStrategy.getClass().getName(), cacheConfiguration.name());
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Removes the entries whose values or arguments have been collected, up to the specified
+		 * number, without searching for them.
+		 */
+		private void drainCollected(final int limit) {
+			for (int i = 0; i < limit; i++) {
+				final var reference = collected.poll();
+				if (reference == null) {
+					return;
+				}
+
+				if (reference instanceof final ValueReference value) {
+					final var entry = value.entry();
+					if (map.remove(entry.key(), entry)) {
+						removed(entry);
+						recordStats(CacheStatistics::collection);
+					}
+				} else if (reference instanceof final CacheKey.ArgumentReference argument) {
+					// a key equals only itself once an argument has been collected
+					final var key = argument.key();
+					final var entry = map.remove(key);
+					if (entry != null) {
+						removed(entry);
+						recordStats(CacheStatistics::collection);
+					}
+					discardStale(key);
+				}
+			}
+		}
+
+		/**
+		 * @return the key of the specified arguments, which is a {@link CacheKey.Probe probe} if
+		 * the cache has {@link CacheConfiguration#weakKeys() weak keys}
+		 * @see #storable(CacheKey)
+		 */
+		private CacheKey key(final Method method, final Object[] args) {
+			return weakKeys ? CacheKey.probe(method, methodId, args)
+				: CacheKey.of(method, methodId, args);
+		}
+
+		/**
+		 * @return the key to store an entry under, which holds the arguments of a
+		 * {@link CacheKey.Probe probe} weakly
+		 */
+		private CacheKey storable(final CacheKey key) {
+			return key instanceof final CacheKey.Probe probe ? probe.weaken(collected) : key;
+		}
+
+		private boolean isOverweight() {
+			return weightedSize.get() > weightLimit();
+		}
+
+		private long weightLimit() {
+			final var maximumWeight = cacheConfiguration.maximumWeight();
+
+			return maximumWeight < 0 ? allowance : Math.min(maximumWeight, allowance);
+		}
+
+		/**
+		 * A view of the cached entries that cancels the timers of every entry that is removed
+		 * through it and remembers it as evicted. Entries may be removed in O(1) with
+		 * {@link #remove(Object)}.
+		 */
+		private class EntryCollection extends AbstractCollection<CacheEntry> {
+
+			@Override
+			public Iterator<CacheEntry> iterator() {
+				final var iterator = map.values().iterator();
+
+				return new Iterator<>() {
+
+					private AbstractCacheEntry current;
+
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public CacheEntry next() {
+						current = iterator.next();
+
+						return current;
+					}
+
+					/**
+					 * Removes the entry returned by {@link #next()} only if it has not been
+					 * replaced since, as {@link EntryCollection#remove(Object)} does.
+					 */
+					@Override
+					public void remove() {
+						if (current == null) {
+							throw new IllegalStateException();
+						}
+
+						EntryCollection.this.remove(current);
+						current = null;
+					}
+
+				};
+			}
+
+			@Override
+			public boolean remove(final Object o) {
+				if (o instanceof final AbstractCacheEntry entry && map.remove(entry.key(), entry)) {
+					evicted(entry);
+					removed(entry);
+
+					return true;
+				}
+
+				return false;
+			}
+
+			@Override
+			public int size() {
+				return map.size();
+			}
+
+		}
+
+	}
+
+	/**
+	 * A cached exception.
+	 *
+	 * @param cause the exception thrown by the method
+	 * @see CacheConfiguration#negativeCacheDelay()
+	 */
+	private record Failure(Throwable cause) {
+
+	}
+
+	/**
+	 * An expired entry in the grace area.
+	 *
+	 * @param entry    the expired {@link AbstractCacheEntry entry}
+	 * @param deadline the {@link Ticker#read() time} after which it may not be served
+	 * @param timer    the {@link TimingWheel.Timer timer} that discards it
+	 * @see CacheConfiguration#staleIfErrorDelay()
+	 */
+	private record Stale(AbstractCacheEntry entry, long deadline, TimingWheel.Timer timer) {
+
+	}
+
+	/**
+	 * An entry in the {@link #tagIndex tag index}.
+	 *
+	 * @param cache the cache that holds the entry
+	 * @param entry the tagged {@link AbstractCacheEntry entry}
+	 */
+	/**
+	 * An evicted value that is waiting to be written to the disk tier.
+	 */
+	private record Demotion(Object value, long expirationTime) {
+
+	}
+
+	private record Tagged(OperationCache cache, AbstractCacheEntry entry) {
+
+	}
+
+	/**
+	 * A load that is in flight. Concurrent callers for the same key {@link #await() wait} for it
+	 * rather than load the value themselves.
+	 */
+	private static final class Loading extends CompletableFuture<Object> {
+
+		private final Thread thread = Thread.currentThread();
+
+		private final AtomicInteger waiters = new AtomicInteger();
+
+		private boolean invalidated;
+
+		/**
+		 * Runs the specified action, which caches the result of the load, unless the load has been
+		 * invalidated. An invalidation waits for the action to finish, so it is never undone.
+		 *
+		 * @return {@code true} if the action was run
+		 */
+		private synchronized boolean runIfValid(final Runnable action) {
+			if (invalidated) {
+				return false;
+			}
+			action.run();
+
+			return true;
+		}
+
+		private synchronized void invalidate() {
+			invalidated = true;
+		}
+
+		private Object await() throws Throwable {
+			if (thread == Thread.currentThread()) {
+				throw new IllegalStateException("recursive load detected");
+			}
+
+			waiters.incrementAndGet();
+			try {
+				return join();
+			} catch (final CompletionException e) {
+				throw e.getCause();
+			}
+		}
+
+		private int waiters() {
+			return waiters.get();
 		}
 
 	}
@@ -358,7 +2333,7 @@ public final class DefaultCacheFactory implements CacheFactory {
 	@FunctionalInterface
 	private interface CacheEntryFactory {
 
-		CacheEntry newCacheEntry(final Object value);
+		AbstractCacheEntry newCacheEntry(final CacheKey key, final Object value);
 
 	}
 
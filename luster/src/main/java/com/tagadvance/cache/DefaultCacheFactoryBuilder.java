@@ -0,0 +1,119 @@
+package com.tagadvance.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A {@link DefaultCacheFactory} builder.
+ */
+public final class DefaultCacheFactoryBuilder {
+
+	private ScheduledExecutorService service;
+
+	private Executor refreshExecutor;
+
+	private long sharedBudget = CacheConfiguration.DISABLED;
+
+	private Ticker ticker = Ticker.system();
+
+	private boolean coarseTicker;
+
+	private Path diskDirectory = Path.of("");
+
+	/**
+	 * @param service the {@link ScheduledExecutorService} that runs expiration and maintenance
+	 * @return {@link DefaultCacheFactoryBuilder this}
+	 */
+	public DefaultCacheFactoryBuilder withScheduledExecutorService(
+		final ScheduledExecutorService service) {
+		this.service = requireNonNull(service, "service must not be null");
+
+		return this;
+	}
+
+	/**
+	 * Refreshes run on the {@link ForkJoinPool#commonPool() common pool} unless an executor is
+	 * supplied.
+	 *
+	 * @param refreshExecutor the {@link Executor} that runs
+	 *                        {@link CacheConfiguration#refreshAfterWriteDelay() refreshes}
+	 * @return {@link DefaultCacheFactoryBuilder this}
+	 */
+	public DefaultCacheFactoryBuilder withRefreshExecutor(final Executor refreshExecutor) {
+		this.refreshExecutor = requireNonNull(refreshExecutor, "refreshExecutor must not be null");
+
+		return this;
+	}
+
+	/**
+	 * @param sharedBudget the total {@link Weigher weight} shared by every cache; for caches
+	 *                     without a weigher this is a number of entries
+	 * @return {@link DefaultCacheFactoryBuilder this}
+	 * @see DefaultCacheFactory#DefaultCacheFactory(ScheduledExecutorService, long)
+	 */
+	public DefaultCacheFactoryBuilder withSharedBudget(final long sharedBudget) {
+		checkArgument(sharedBudget > 0, "sharedBudget must be > 0");
+		this.sharedBudget = sharedBudget;
+
+		return this;
+	}
+
+	/**
+	 * The {@link Ticker#system() system ticker} is used unless a ticker is supplied, e.g. a
+	 * {@link ManualTicker} in tests.
+	 *
+	 * @param ticker the {@link Ticker ticker} that entries and expiration are timed by
+	 * @return {@link DefaultCacheFactoryBuilder this}
+	 */
+	public DefaultCacheFactoryBuilder withTicker(final Ticker ticker) {
+		this.ticker = requireNonNull(ticker, "ticker must not be null");
+
+		return this;
+	}
+
+	/**
+	 * Reads the ticker once per tick of the timing wheel that drives expiration, rather than on
+	 * every write and hit. Expiration is no less precise, since it is already measured in ticks,
+	 * but load times shorter than a tick are recorded as zero.
+	 *
+	 * @return {@link DefaultCacheFactoryBuilder this}
+	 */
+	public DefaultCacheFactoryBuilder withCoarseTicker() {
+		this.coarseTicker = true;
+
+		return this;
+	}
+
+	/**
+	 * Relative {@link CacheConfiguration#diskDirectory() disk directories} are resolved against the
+	 * working directory unless a directory is supplied, e.g. a temporary directory in tests.
+	 *
+	 * @param diskDirectory the directory that relative disk directories are resolved against
+	 * @return {@link DefaultCacheFactoryBuilder this}
+	 */
+	public DefaultCacheFactoryBuilder withDiskDirectory(final Path diskDirectory) {
+		this.diskDirectory = requireNonNull(diskDirectory, "diskDirectory must not be null");
+
+		return this;
+	}
+
+	/**
+	 * Construct a {@link DefaultCacheFactory}.
+	 *
+	 * @return a {@link DefaultCacheFactory}
+	 */
+	public DefaultCacheFactory build() {
+		return new DefaultCacheFactory(
+			service == null ? Executors.newSingleThreadScheduledExecutor() : service,
+			sharedBudget > 0 ? new SharedBudget(sharedBudget) : null,
+			refreshExecutor == null ? ForkJoinPool.commonPool() : refreshExecutor, ticker,
+			coarseTicker, diskDirectory);
+	}
+
+}
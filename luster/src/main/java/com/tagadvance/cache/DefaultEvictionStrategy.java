@@ -7,10 +7,8 @@ public final class DefaultEvictionStrategy implements EvictionStrategy {
 	private final EvictionStrategy evictionStrategy;
 
 	public DefaultEvictionStrategy() {
-		this.evictionStrategy = new CompoundEvictionStrategy(
-			new SoftValueEvictionStrategy(),
-			new OldestFirstEvictionStrategy()
-		);
+		// collected soft values are removed by the cache as they are enqueued
+		this.evictionStrategy = new OldestFirstEvictionStrategy();
 	}
 
 	@Override
@@ -18,4 +16,19 @@ public final class DefaultEvictionStrategy implements EvictionStrategy {
 		evictionStrategy.evict(entries, limit);
 	}
 
+	@Override
+	public void onInsert(final CacheEntry entry) {
+		evictionStrategy.onInsert(entry);
+	}
+
+	@Override
+	public void onAccess(final CacheEntry entry) {
+		evictionStrategy.onAccess(entry);
+	}
+
+	@Override
+	public void onRemove(final CacheEntry entry) {
+		evictionStrategy.onRemove(entry);
+	}
+
 }
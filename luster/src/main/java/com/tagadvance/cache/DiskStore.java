@@ -0,0 +1,488 @@
+package com.tagadvance.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DiskStore} is a log-structured store of serialized entries in memory-mapped segment files.
+ * Entries are only ever appended, to the newest segment, so a record is never modified once it has
+ * been written and may be read without a lock, in place, from the mapped file. An index in memory
+ * maps each {@link CacheKey key} to its newest record; it is rebuilt from the segments when the
+ * store is opened.
+ * <p>
+ * Overwritten and removed records are garbage. When the store is full, the live records of every
+ * older segment are copied to new segments and the old segments are deleted, provided that frees at
+ * least one segment; otherwise the oldest segment is discarded along with its entries. The store
+ * may exceed its capacity by about one segment while it does so.
+ * <p>
+ * Each record is laid out as the length of the key, the length of the value, the
+ * {@link System#currentTimeMillis() time} at which it expires, the key, and the value. The length
+ * of the key is written last, so that a record that was not completely written is ignored. A value
+ * length of {@code -1} marks the removal of the key.
+ * <p>
+ * A store holds a lock on its directory until it is {@link #close() closed}, so that no two stores,
+ * in this process or another, append to the same segments.
+ */
+final class DiskStore {
+
+	private static final Logger log = LoggerFactory.getLogger(DiskStore.class);
+
+	private static final int MAX_SEGMENT_SIZE = 64 << 20;
+
+	private static final int MIN_SEGMENT_SIZE = 4 << 10;
+
+	private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+	private static final int TOMBSTONE = -1;
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final int maxSegments;
+
+	private final KeyCodec codec;
+
+	private final ConcurrentHashMap<CacheKey, Location> index = new ConcurrentHashMap<>();
+
+	/**
+	 * The segments, oldest first. The last segment is the one that is appended to.
+	 */
+	private final Deque<Segment> segments = new ArrayDeque<>();
+
+	private int nextSegmentId;
+
+	private boolean compacting;
+
+	private final FileLock lock;
+
+	private boolean closed;
+
+	/**
+	 * @param directory the directory of the segment files, which is created if necessary
+	 * @param capacity  the maximum number of bytes to write
+	 * @param codec     the {@link KeyCodec codec} of the keys
+	 * @throws IllegalStateException if another store holds the lock on the directory
+	 * @throws UncheckedIOException  if the existing segments cannot be read
+	 */
+	DiskStore(final Path directory, final long capacity, final KeyCodec codec) {
+		checkArgument(capacity >= 4L * MIN_SEGMENT_SIZE, "capacity must be at least %s",
+			4 * MIN_SEGMENT_SIZE);
+		this.directory = requireNonNull(directory, "directory must not be null");
+		this.codec = requireNonNull(codec, "codec must not be null");
+		this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, capacity / 4);
+		this.maxSegments = (int) (capacity / segmentSize);
+		try {
+			Files.createDirectories(directory);
+			this.lock = lock(directory);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		try {
+			open();
+		} catch (final IOException e) {
+			release();
+			throw new UncheckedIOException(e);
+		} catch (final RuntimeException e) {
+			release();
+			throw e;
+		}
+	}
+
+	private static FileLock lock(final Path directory) throws IOException {
+		final var channel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE);
+		try {
+			final var lock = channel.tryLock();
+			if (lock != null) {
+				return lock;
+			}
+		} catch (final OverlappingFileLockException e) {
+			// the lock is held by another store in this process
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		channel.close();
+
+		throw new IllegalStateException("%s is in use".formatted(directory));
+	}
+
+	/**
+	 * Rebuilds the index from the existing segments, oldest first, so that newer records win.
+	 */
+	private void open() throws IOException {
+		final var paths = new ArrayList<Path>();
+		try (final var stream = Files.list(directory)) {
+			stream.filter(path -> segmentId(path) >= 0)
+				.sorted(Comparator.comparingInt(DiskStore::segmentId))
+				.forEach(paths::add);
+		}
+
+		for (final var path : paths) {
+			final var segment = map(segmentId(path), path);
+			segments.add(segment);
+			nextSegmentId = segment.id + 1;
+			scan(segment);
+		}
+	}
+
+	private void scan(final Segment segment) {
+		final var buffer = segment.buffer;
+		var offset = 0;
+		while (offset + HEADER_SIZE <= segmentSize) {
+			final var keyLength = buffer.getInt(offset);
+			final var valueLength = buffer.getInt(offset + Integer.BYTES);
+			final var length = HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+			if (keyLength <= 0 || offset + length > segmentSize) {
+				break;
+			}
+
+			final CacheKey key;
+			try {
+				key = codec.decode(buffer.slice(offset + HEADER_SIZE, keyLength));
+			} catch (final IOException | RuntimeException e) {
+				log.warn("Cannot read a key of {}; the record is skipped", segment.path, e);
+				segment.garbage += length;
+				offset += length;
+				continue;
+			}
+
+			final var location = valueLength == TOMBSTONE ? null
+				: new Location(segment, offset, keyLength, valueLength,
+					buffer.getLong(offset + 2 * Integer.BYTES));
+			replace(key, location);
+			if (location == null) {
+				segment.garbage += length;
+			}
+			offset += length;
+		}
+		segment.position = offset;
+	}
+
+	/**
+	 * @param key a {@link CacheKey key}
+	 * @return the newest record of the key, unless it has expired
+	 */
+	Value get(final CacheKey key) {
+		final var location = index.get(key);
+		if (location == null) {
+			return null;
+		} else if (location.isExpired(System.currentTimeMillis())) {
+			remove(key);
+
+			return null;
+		}
+
+		return new Value(location.value(), location.expirationTime);
+	}
+
+	/**
+	 * @param key            a {@link CacheKey key}
+	 * @param value          the serialized value
+	 * @param expirationTime the {@link System#currentTimeMillis() time} at which the value
+	 *                       expires, or a negative number if it does not expire
+	 */
+	synchronized void put(final CacheKey key, final byte[] value, final long expirationTime) {
+		if (closed) {
+			return;
+		}
+
+		try {
+			replace(key, append(codec.encode(key), value, expirationTime));
+		} catch (final IOException | RuntimeException e) {
+			log.warn("Cannot write {} to {}", key, directory, e);
+		}
+	}
+
+	/**
+	 * Removes the key, if it is present.
+	 */
+	synchronized void remove(final CacheKey key) {
+		final var location = index.get(key);
+		if (location == null) {
+			return;
+		} else if (closed) {
+			replace(key, null);
+
+			return;
+		}
+
+		try {
+			final var tombstone = append(toBytes(location.key()), null, -1L);
+			tombstone.segment.garbage += tombstone.length();
+			replace(key, null);
+		} catch (final IOException | RuntimeException e) {
+			log.warn("Cannot remove {} from {}", key, directory, e);
+			// the record must not be served even if it will be read again after a restart
+			replace(key, null);
+		}
+	}
+
+	/**
+	 * Deletes every segment.
+	 */
+	synchronized void clear() {
+		index.clear();
+		if (closed) {
+			return;
+		}
+
+		while (!segments.isEmpty()) {
+			delete(segments.removeFirst());
+		}
+	}
+
+	/**
+	 * Releases the lock on the directory. A closed store still serves the records that it has
+	 * written but neither writes nor deletes segments, since another store may now own them.
+	 */
+	synchronized void close() {
+		if (!closed) {
+			closed = true;
+			release();
+		}
+	}
+
+	private void release() {
+		try {
+			lock.channel().close();
+		} catch (final IOException e) {
+			log.warn("Cannot release the lock on {}", directory, e);
+		}
+	}
+
+	/**
+	 * @return the number of live entries
+	 */
+	int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the number of bytes in the segment files
+	 */
+	synchronized long diskSize() {
+		return (long) segments.size() * segmentSize;
+	}
+
+	private void replace(final CacheKey key, final Location location) {
+		final var previous = location == null ? index.remove(key) : index.put(key, location);
+		if (previous != null) {
+			previous.segment.garbage += previous.length();
+		}
+	}
+
+	private Location append(final byte[] key, final byte[] value, final long expirationTime)
+		throws IOException {
+		final var length = HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+		if (length > segmentSize) {
+			throw new IOException("%d bytes do not fit in a segment".formatted(length));
+		}
+
+		var segment = segments.peekLast();
+		// compaction appends to the new segment, which may leave it too full for the record
+		while (segment == null || segment.position + length > segmentSize) {
+			segment = roll();
+		}
+
+		final var buffer = segment.buffer;
+		final var offset = segment.position;
+		buffer.putInt(offset + Integer.BYTES, value == null ? TOMBSTONE : value.length);
+		buffer.putLong(offset + 2 * Integer.BYTES, expirationTime);
+		buffer.put(offset + HEADER_SIZE, key);
+		if (value != null) {
+			buffer.put(offset + HEADER_SIZE + key.length, value);
+		}
+		// the record is complete once its key length has been written
+		buffer.putInt(offset, key.length);
+		segment.position += length;
+
+		return new Location(segment, offset, key.length, value == null ? 0 : value.length,
+			expirationTime);
+	}
+
+	/**
+	 * Starts a new segment, reclaiming space first if the store is full.
+	 */
+	private Segment roll() throws IOException {
+		final var segment = map(nextSegmentId++, null);
+		segments.addLast(segment);
+		if (segments.size() > maxSegments && !compacting) {
+			final long garbage = segments.stream().mapToLong(s -> s.garbage).sum();
+			if (garbage >= segmentSize) {
+				compact(segment);
+			}
+			while (segments.size() > maxSegments) {
+				evict(segments.removeFirst());
+			}
+		}
+
+		return segments.peekLast();
+	}
+
+	/**
+	 * Copies the live records of every segment older than the specified one to new segments and
+	 * deletes the old segments.
+	 */
+	private void compact(final Segment newest) throws IOException {
+		compacting = true;
+		try {
+			final var now = System.currentTimeMillis();
+			while (segments.peekFirst() != newest) {
+				final var segment = segments.removeFirst();
+				for (final var entry : index.entrySet()) {
+					final var location = entry.getValue();
+					if (location.segment != segment) {
+						continue;
+					}
+
+					if (location.isExpired(now)) {
+						index.remove(entry.getKey(), location);
+					} else {
+						final var key = toBytes(location.key());
+						final var value = toBytes(location.value());
+						index.put(entry.getKey(), append(key, value, location.expirationTime));
+					}
+				}
+				delete(segment);
+			}
+		} finally {
+			compacting = false;
+		}
+	}
+
+	/**
+	 * Discards a segment along with every entry whose newest record it holds.
+	 */
+	private void evict(final Segment segment) {
+		index.values().removeIf(location -> location.segment == segment);
+		delete(segment);
+	}
+
+	private Segment map(final int id, final Path existing) throws IOException {
+		final var path = existing == null ? directory.resolve("segment-%08d.dat".formatted(id))
+			: existing;
+		try (final var channel = FileChannel.open(path, StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// the mapping remains valid after the channel is closed
+			final var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+
+			return new Segment(id, path, buffer);
+		}
+	}
+
+	private void delete(final Segment segment) {
+		// readers may still hold the mapping, which remains valid after the file is deleted
+		try {
+			Files.deleteIfExists(segment.path);
+		} catch (final IOException e) {
+			log.warn("Cannot delete {}", segment.path, e);
+		}
+	}
+
+	private static int segmentId(final Path path) {
+		final var name = path.getFileName().toString();
+		if (!name.matches("segment-\\d{8}\\.dat")) {
+			return -1;
+		}
+
+		return Integer.parseInt(name.substring(8, 16));
+	}
+
+	private static byte[] toBytes(final ByteBuffer buffer) {
+		final var bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		return bytes;
+	}
+
+	/**
+	 * Converts {@link CacheKey keys} to and from bytes.
+	 */
+	interface KeyCodec {
+
+		byte[] encode(final CacheKey key) throws IOException;
+
+		CacheKey decode(final ByteBuffer buffer) throws IOException;
+
+	}
+
+	/**
+	 * A value read from the store.
+	 *
+	 * @param value          a read-only view of the serialized value in the mapped file
+	 * @param expirationTime the {@link System#currentTimeMillis() time} at which the value expires,
+	 *                       or a negative number if it does not expire
+	 */
+	record Value(ByteBuffer value, long expirationTime) {
+
+	}
+
+	private static final class Segment {
+
+		private final int id;
+
+		private final Path path;
+
+		private final MappedByteBuffer buffer;
+
+		/**
+		 * The offset at which the next record is appended.
+		 */
+		private int position;
+
+		/**
+		 * The number of bytes in records that have been overwritten or removed.
+		 */
+		private long garbage;
+
+		private Segment(final int id, final Path path, final MappedByteBuffer buffer) {
+			this.id = id;
+			this.path = path;
+			this.buffer = buffer;
+		}
+
+	}
+
+	private record Location(Segment segment, int offset, int keyLength, int valueLength,
+							long expirationTime) {
+
+		int length() {
+			return HEADER_SIZE + keyLength + valueLength;
+		}
+
+		boolean isExpired(final long now) {
+			return expirationTime >= 0 && now >= expirationTime;
+		}
+
+		ByteBuffer key() {
+			return segment.buffer.slice(offset + HEADER_SIZE, keyLength).asReadOnlyBuffer();
+		}
+
+		ByteBuffer value() {
+			return segment.buffer.slice(offset + HEADER_SIZE + keyLength, valueLength)
+				.asReadOnlyBuffer();
+		}
+
+	}
+
+}
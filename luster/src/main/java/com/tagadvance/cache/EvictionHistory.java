@@ -0,0 +1,57 @@
+package com.tagadvance.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link EvictionHistory} remembers the hashes of recently evicted keys so that a cache can tell
+ * how many of its misses would have been hits had it been larger. Hashes are kept in a small,
+ * direct-mapped table; a newer eviction may overwrite an older one, so the history is lossy.
+ */
+final class EvictionHistory {
+
+	private static final int SIZE = 1 << 10;
+
+	private static final int MASK = SIZE - 1;
+
+	private final AtomicIntegerArray hashes = new AtomicIntegerArray(SIZE);
+
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * @param hashCode the hash code of an evicted key
+	 */
+	void recordEviction(final int hashCode) {
+		final var hash = spread(hashCode);
+		hashes.lazySet(hash & MASK, hash);
+	}
+
+	/**
+	 * Counts a hit if the missing key was recently evicted.
+	 *
+	 * @param hashCode the hash code of a key that missed
+	 */
+	void recordMiss(final int hashCode) {
+		final var hash = spread(hashCode);
+		if (hashes.compareAndSet(hash & MASK, hash, 0)) {
+			hits.increment();
+		}
+	}
+
+	/**
+	 * @return the number of misses for recently evicted keys since the last call
+	 */
+	long drainHits() {
+		return hits.sumThenReset();
+	}
+
+	/**
+	 * @return a well-mixed, non-zero hash; zero marks an empty slot
+	 */
+	private static int spread(final int hashCode) {
+		final var hash = hashCode * 0x9E3779B9;
+
+		return (hash ^ (hash >>> 16)) | 1;
+	}
+
+}
@@ -6,4 +6,42 @@ public interface EvictionStrategy {
 
 	void evict(final Collection<CacheEntry> entries, final int limit);
 
+	/**
+	 * Called once by the cache, before any entry is inserted, so that a strategy may size its
+	 * structures up front rather than grow them while the cache warms up.
+	 *
+	 * @param maximumSize the {@link CacheConfiguration#maximumSize() maximum size} of the cache
+	 */
+	default void initialize(final int maximumSize) {
+
+	}
+
+	/**
+	 * Called after an entry has been added to the cache. Stateless strategies may ignore it.
+	 *
+	 * @param entry the new {@link CacheEntry entry}
+	 */
+	default void onInsert(final CacheEntry entry) {
+
+	}
+
+	/**
+	 * Called for cache hits. Hits are buffered and replayed in batches by the cache's maintenance
+	 * task, so some may be dropped under load and none are reported on the calling thread.
+	 *
+	 * @param entry the {@link CacheEntry entry} that was read
+	 */
+	default void onAccess(final CacheEntry entry) {
+
+	}
+
+	/**
+	 * Called after an entry has been removed from the cache for any reason.
+	 *
+	 * @param entry the removed {@link CacheEntry entry}
+	 */
+	default void onRemove(final CacheEntry entry) {
+
+	}
+
 }
@@ -0,0 +1,26 @@
+package com.tagadvance.cache;
+
+import java.time.Duration;
+
+/**
+ * An {@link Expiry expiry} calculates how long each value may be cached from the value itself, e.g.
+ * a token that carries its own validity window.
+ * <p>
+ * Implementations must have a public constructor with no arguments.
+ *
+ * @see CacheConfiguration#expiry()
+ */
+@FunctionalInterface
+public interface Expiry {
+
+	/**
+	 * @param args  the method arguments
+	 * @param value the value returned by the method; for methods that return a
+	 *              {@link java.util.concurrent.CompletionStage CompletionStage} this is the result
+	 *              of the stage
+	 * @return how long after it is written the value expires, or {@code null} to fall back to
+	 * {@link CacheConfiguration#expireAfterWriteDelay()}
+	 */
+	Duration expireAfterWrite(final Object[] args, final Object value);
+
+}
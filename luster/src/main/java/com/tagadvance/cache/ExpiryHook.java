@@ -0,0 +1,88 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import com.tagadvance.reflection.M;
+import com.tagadvance.reflection.ReflectionException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExpiryHook} adapts a {@link CacheConfiguration#expireAfterWriteHook() hook method} to an
+ * {@link Expiry expiry}. The hook accepts the result of the cached method and returns a
+ * {@link Duration} or a number of milliseconds.
+ */
+final class ExpiryHook implements Expiry {
+
+	private static final char SEPARATOR = '#';
+
+	private final Invoker invoker;
+
+	private ExpiryHook(final Invoker invoker) {
+		this.invoker = invoker;
+	}
+
+	/**
+	 * Resolves a hook of the form {@code "com.domain.Class#methodName"}, for a static method or a
+	 * method of the proxied instance, or simply {@code "methodName"} for a method of the interface
+	 * that declares the cached method.
+	 *
+	 * @param hook     the hook
+	 * @param method   the cached {@link Method method}
+	 * @param instance the proxied instance
+	 * @return an {@link Expiry expiry}
+	 * @throws ReflectionException if the hook cannot be resolved
+	 */
+	static Expiry resolve(final String hook, final Method method, final Object instance) {
+		requireNonNull(hook, "hook must not be null");
+		requireNonNull(method, "method must not be null");
+
+		final var index = hook.indexOf(SEPARATOR);
+		final var methodName = hook.substring(index + 1);
+		final Class<?> type;
+		if (index < 0) {
+			type = method.getDeclaringClass();
+		} else {
+			try {
+				type = Class.forName(hook.substring(0, index), true,
+					method.getDeclaringClass().getClassLoader());
+			} catch (final ClassNotFoundException e) {
+				throw new ReflectionException(e);
+			}
+		}
+
+		final var hooks = M.getMethods(type)
+			.filter(m -> m.getName().equals(methodName) && m.getParameterCount() == 1)
+			.toList();
+		if (hooks.size() != 1) {
+			final var message = "expected exactly one hook named %s with one parameter".formatted(
+				hook);
+			throw new ReflectionException(message, new IllegalArgumentException());
+		}
+
+		final var match = hooks.get(0);
+		if (M.isStatic(match)) {
+			return new ExpiryHook(Invoker.of(match, null));
+		} else if (!type.isInstance(instance)) {
+			final var message = "%s is not static and the proxied instance is not a %s".formatted(
+				hook, type.getName());
+			throw new ReflectionException(message, new IllegalArgumentException());
+		}
+
+		return new ExpiryHook(Invoker.resolve(match, instance));
+	}
+
+	@Override
+	public Duration expireAfterWrite(final Object[] args, final Object value) {
+		final var result = invoker.invoke(new Object[]{value});
+		if (result instanceof final Duration duration) {
+			return duration;
+		} else if (result instanceof final Number millis) {
+			return Duration.ofNanos(TimeUnit.MILLISECONDS.toNanos(millis.longValue()));
+		}
+
+		return null;
+	}
+
+}
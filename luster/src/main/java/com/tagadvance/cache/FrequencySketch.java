@@ -0,0 +1,133 @@
+package com.tagadvance.cache;
+
+/**
+ * {@link FrequencySketch} is a Count-Min Sketch of 4-bit counters that estimates how often an item
+ * has been seen. Once the number of increments reaches ten times the maximum size, every counter is
+ * halved so that the sketch favours recent popularity over historic popularity.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission
+ * Policy</a>
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+		0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	private static final int MAXIMUM_FREQUENCY = 15;
+
+	private long[] table = new long[0];
+
+	private int tableMask;
+
+	private int sampleSize;
+
+	private int size;
+
+	/**
+	 * Resizes the sketch, if necessary, so that it can accurately estimate the frequency of
+	 * {@literal maximumSize} items. Growing keeps every estimate: since an item's index in the
+	 * larger table agrees with its index in the smaller one in the low bits, the table is copied
+	 * into each part of the larger one.
+	 *
+	 * @param maximumSize the maximum size of the cache
+	 */
+	void ensureCapacity(final long maximumSize) {
+		final var maximum = (int) Math.min(Math.max(maximumSize, 1L), Integer.MAX_VALUE >>> 2);
+		final var length = Math.max(Integer.highestOneBit(maximum - 1) << 1, 8);
+		if (table.length >= length) {
+			return;
+		}
+
+		final var grown = new long[length];
+		for (int i = 0; table.length > 0 && i < length; i += table.length) {
+			System.arraycopy(table, 0, grown, i, table.length);
+		}
+		table = grown;
+		tableMask = length - 1;
+		sampleSize = 10 * maximum;
+	}
+
+	/**
+	 * @param hashCode the hash code of an item
+	 * @return the estimated number of times the item has been seen, up to {@value #MAXIMUM_FREQUENCY}
+	 */
+	int frequency(final int hashCode) {
+		if (table.length == 0) {
+			return 0;
+		}
+
+		final var hash = spread(hashCode);
+		final var start = (hash & 3) << 2;
+		var frequency = MAXIMUM_FREQUENCY;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final var index = indexOf(hash, i);
+			final var offset = (start + i) << 2;
+			final var count = (int) ((table[index] >>> offset) & 0xFL);
+			frequency = Math.min(frequency, count);
+		}
+
+		return frequency;
+	}
+
+	/**
+	 * Increments the estimated frequency of an item and ages the sketch if the sample size has
+	 * been reached.
+	 *
+	 * @param hashCode the hash code of an item
+	 */
+	void increment(final int hashCode) {
+		if (table.length == 0) {
+			return;
+		}
+
+		final var hash = spread(hashCode);
+		final var start = (hash & 3) << 2;
+		var added = false;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final var index = indexOf(hash, i);
+			final var offset = (start + i) << 2;
+			final var mask = 0xFL << offset;
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+
+		if (added && ++size == sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halves every counter.
+	 */
+	private void reset() {
+		var odd = 0;
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size - (odd >>> 2)) >>> 1;
+	}
+
+	private int indexOf(final int hash, final int i) {
+		var h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+
+		return (int) h & tableMask;
+	}
+
+	private static int spread(final int hashCode) {
+		var h = hashCode * 0x9E3779B9;
+		h ^= h >>> 16;
+
+		return h;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link CacheSerializer serializer} that converts arguments and values to JSON.
+ */
+public final class GsonCacheSerializer implements CacheSerializer {
+
+	private final Gson gson;
+
+	public GsonCacheSerializer() {
+		this(new GsonBuilder().create());
+	}
+
+	public GsonCacheSerializer(final Gson gson) {
+		this.gson = requireNonNull(gson, "gson must not be null");
+	}
+
+	@Override
+	public byte[] serialize(final Object o, final Type type) throws IOException {
+		try {
+			return gson.toJson(o, type).getBytes(StandardCharsets.UTF_8);
+		} catch (final JsonParseException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public Object deserialize(final byte[] bytes, final Type type) throws IOException {
+		try {
+			return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), type);
+		} catch (final JsonParseException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public Object deserialize(final ByteBuffer buffer, final Type type) throws IOException {
+		try {
+			final var in = new ByteBufferInputStream(buffer.duplicate());
+
+			return gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), type);
+		} catch (final JsonParseException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Streams a buffer in place.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) {
+				return 0;
+			} else if (!buffer.hasRemaining()) {
+				return -1;
+			}
+
+			final var n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+
+			return n;
+		}
+
+	}
+
+}
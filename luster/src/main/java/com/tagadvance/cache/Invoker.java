@@ -0,0 +1,106 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import com.tagadvance.reflection.M;
+import com.tagadvance.reflection.ReflectionException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * {@link Invoker} is the target of a proxied {@link Method method}. The target is resolved once
+ * and compiled to a spread {@link MethodHandle method handle} so that each invocation costs only
+ * the call itself.
+ */
+final class Invoker {
+
+	private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class,
+		Object[].class);
+
+	private final MethodHandle handle;
+
+	private Invoker(final MethodHandle handle) {
+		this.handle = handle;
+	}
+
+	/**
+	 * Resolves the method of {@literal instance} whose signature matches {@literal method}. When a
+	 * generic implementation, e.g. of {@code Function<Integer, Object>}, also declares a bridge
+	 * method that matches, the bridge method is ignored.
+	 *
+	 * @param method   a proxied {@link Method method}
+	 * @param instance the proxied instance
+	 * @return an {@link Invoker invoker}
+	 * @throws ReflectionException if no method, or more than one method, matches
+	 */
+	static Invoker resolve(final Method method, final Object instance) {
+		requireNonNull(method, "method must not be null");
+		requireNonNull(instance, "instance must not be null");
+
+		var matchingMethods = M.getMethods(instance.getClass())
+			.filter(m -> CacheUtils.methodSignatureEquals(m, method))
+			.toList();
+		if (matchingMethods.size() > 1) {
+			// a generic implementation also declares a bridge method that matches
+			matchingMethods = matchingMethods.stream().filter(m -> !m.isBridge()).toList();
+		}
+		final var match = switch (matchingMethods.size()) {
+			case 0 -> throw new ReflectionException("no matching method found",
+				new IllegalArgumentException());
+			case 1 -> matchingMethods.get(0);
+			default ->
+				throw new ReflectionException("ambiguous method %s".formatted(method.getName()),
+					new IllegalArgumentException());
+		};
+
+		return of(match, instance);
+	}
+
+	/**
+	 * @param method   the {@link Method method} to invoke
+	 * @param instance the instance to invoke it on; ignored if the method is static
+	 * @return an {@link Invoker invoker}
+	 * @throws ReflectionException if the method is not accessible
+	 */
+	static Invoker of(final Method method, final Object instance) {
+		requireNonNull(method, "method must not be null");
+		method.trySetAccessible();
+
+		try {
+			var handle = MethodHandles.lookup().unreflect(method);
+			if (!M.isStatic(method)) {
+				handle = handle.bindTo(requireNonNull(instance, "instance must not be null"));
+			}
+			handle = handle.asSpreader(Object[].class, method.getParameterCount())
+				.asType(SPREAD_TYPE);
+
+			return new Invoker(handle);
+		} catch (final IllegalAccessException e) {
+			throw new ReflectionException(e);
+		}
+	}
+
+	/**
+	 * Unchecked exceptions are re-thrown as is. Checked exceptions are wrapped in a
+	 * {@link ReflectionException} so that they may be unwrapped with
+	 * {@link CacheUtils#toValidException(ReflectionException, Method)}.
+	 *
+	 * @param args the arguments
+	 * @return the result
+	 */
+	Object invoke(final Object[] args) {
+		try {
+			return (Object) handle.invokeExact(args);
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Exception e) {
+			throw new ReflectionException(e);
+		} catch (final Throwable t) {
+			throw new UndeclaredThrowableException(t);
+		}
+	}
+
+}
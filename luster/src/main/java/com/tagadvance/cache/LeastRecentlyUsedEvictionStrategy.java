@@ -0,0 +1,77 @@
+package com.tagadvance.cache;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link LeastRecentlyUsedEvictionStrategy} evicts the least recently used entries first. Entries
+ * are kept in an intrusive {@link AccessOrderDeque access-order deque} so that inserts, accesses,
+ * removals, and evictions are all O(1).
+ * <p>
+ * Accesses are {@link EvictionStrategy#onAccess(CacheEntry) replayed} from a lossy buffer, so under
+ * heavy contention the order is approximate.
+ */
+public final class LeastRecentlyUsedEvictionStrategy implements EvictionStrategy {
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final AccessOrderDeque deque = new AccessOrderDeque();
+
+	@Override
+	public void evict(final Collection<CacheEntry> entries, final int limit) {
+		while (entries.size() > limit) {
+			final AbstractCacheEntry eldest;
+			lock.lock();
+			try {
+				eldest = deque.pollFirst();
+			} finally {
+				lock.unlock();
+			}
+
+			if (eldest == null) {
+				return;
+			}
+
+			entries.remove(eldest);
+		}
+	}
+
+	@Override
+	public void onInsert(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			lock.lock();
+			try {
+				if (!deque.contains(e)) {
+					deque.addLast(e);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void onAccess(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			lock.lock();
+			try {
+				deque.moveToBack(e);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void onRemove(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			lock.lock();
+			try {
+				deque.remove(e);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.tagadvance.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Ticker ticker} that only moves when it is {@link #advance(long, TimeUnit) advanced}, so
+ * that expiration may be tested without waiting for it.
+ */
+public final class ManualTicker implements Ticker {
+
+	private final AtomicLong nanos = new AtomicLong();
+
+	@Override
+	public long read() {
+		return nanos.get();
+	}
+
+	/**
+	 * @param duration the non-negative duration to advance by
+	 * @param unit     the duration {@link TimeUnit unit}
+	 * @return {@link ManualTicker this}
+	 */
+	public ManualTicker advance(final long duration, final TimeUnit unit) {
+		checkArgument(duration >= 0, "duration must be >= 0");
+		requireNonNull(unit, "unit must not be null");
+		nanos.addAndGet(unit.toNanos(duration));
+
+		return this;
+	}
+
+}
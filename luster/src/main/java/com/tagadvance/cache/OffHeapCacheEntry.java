@@ -0,0 +1,153 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CacheEntry cache entry} whose value is serialized into a block of off-heap memory and
+ * deserialized on every read. The block is returned to its {@link SlabAllocator allocator} when the
+ * entry is {@link #release() released}, after which the entry has no value.
+ * <p>
+ * A value whose declared type is a class is serialized with its own class, which the entry records,
+ * so that the fields of a subclass survive. An entry that cannot be deserialized releases itself,
+ * and later values of its type are kept on the heap.
+ */
+class OffHeapCacheEntry extends AbstractCacheEntry {
+
+	private static final Logger log = LoggerFactory.getLogger(OffHeapCacheEntry.class);
+
+	private final Store store;
+
+	private final SlabAllocator.Block block;
+
+	/**
+	 * The type that the value was serialized with.
+	 */
+	private final Type type;
+
+	private boolean released;
+
+	private OffHeapCacheEntry(final CacheKey key, final long writeTime, final Store store,
+		final SlabAllocator.Block block, final Type type) {
+		super(key, writeTime);
+		this.store = store;
+		this.block = block;
+		this.type = type;
+	}
+
+	@Override
+	public Object value() {
+		final byte[] bytes;
+		synchronized (this) {
+			if (released) {
+				return null;
+			}
+
+			// the block may not be reused until it has been read
+			bytes = block.read();
+		}
+
+		try {
+			return store.serializer.deserialize(bytes, type);
+		} catch (final IOException | RuntimeException e) {
+			if (store.unreadable.add(type)) {
+				log.warn("Cannot deserialize {}; values of {} are kept on the heap", key(), type,
+					e);
+			}
+			release();
+
+			return null;
+		}
+	}
+
+	/**
+	 * Frees the block, once.
+	 */
+	void release() {
+		synchronized (this) {
+			if (released) {
+				return;
+			}
+			released = true;
+		}
+
+		store.allocator.free(block);
+	}
+
+	/**
+	 * The off-heap memory and the {@link CacheSerializer serializer} of a cache.
+	 */
+	static final class Store {
+
+		private final SlabAllocator allocator;
+
+		private final CacheSerializer serializer;
+
+		private final Type type;
+
+		/**
+		 * The types of values that could not be deserialized.
+		 */
+		private final Set<Type> unreadable = ConcurrentHashMap.newKeySet();
+
+		/**
+		 * @param allocator  the {@link SlabAllocator allocator} of the blocks
+		 * @param serializer the {@link CacheSerializer serializer} of the values
+		 * @param type       the declared type of the values
+		 */
+		Store(final SlabAllocator allocator, final CacheSerializer serializer, final Type type) {
+			this.allocator = requireNonNull(allocator, "allocator must not be null");
+			this.serializer = requireNonNull(serializer, "serializer must not be null");
+			this.type = requireNonNull(type, "type must not be null");
+		}
+
+		/**
+		 * @param key       a {@link CacheKey key}
+		 * @param writeTime the {@link Ticker#read() time} at which the entry is written
+		 * @param value     a value
+		 * @return a new entry, or {@code null} if the value cannot be serialized or deserialized or
+		 * does not fit
+		 */
+		OffHeapCacheEntry newCacheEntry(final CacheKey key, final long writeTime,
+			final Object value) {
+			// a parameterized type is kept so that its type arguments are not lost
+			final var type = this.type instanceof Class<?> && value != null ? value.getClass()
+				: this.type;
+			if (unreadable.contains(type)) {
+				return null;
+			}
+
+			final byte[] bytes;
+			try {
+				bytes = serializer.serialize(value, type);
+			} catch (final IOException | RuntimeException e) {
+				log.warn("Cannot serialize {}", key, e);
+
+				return null;
+			}
+
+			final var block = allocator.allocate(bytes.length);
+			if (block == null) {
+				return null;
+			}
+			block.write(bytes);
+
+			return new OffHeapCacheEntry(key, writeTime, this, block, type);
+		}
+
+		/**
+		 * @return the number of off-heap bytes in use
+		 */
+		long allocated() {
+			return allocator.allocated();
+		}
+
+	}
+
+}
@@ -1,23 +1,48 @@
 package com.tagadvance.cache;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * {@link OldestFirstEvictionStrategy} evicts exactly as many entries as exceed the limit, oldest
+ * {@link CacheEntry#writeTime() write} first. A coarse or manual {@link Ticker ticker} gives many
+ * entries the same write time, so ties are broken by the order in which the entries were inserted,
+ * or else by the order of the collection.
+ */
 public final class OldestFirstEvictionStrategy implements EvictionStrategy {
 
+	private static final Comparator<CacheEntry> OLDEST_FIRST = Comparator
+		.comparingLong(CacheEntry::writeTime)
+		.thenComparingLong(OldestFirstEvictionStrategy::insertion);
+
+	private final AtomicLong insertions = new AtomicLong();
+
 	@Override
 	public void evict(final Collection<CacheEntry> entries, final int limit) {
-		if (entries.size() <= limit) {
+		final var excess = entries.size() - Math.max(limit, 0);
+		if (excess <= 0) {
 			return;
 		}
 
-		entries
-			.stream()
-			.sorted(Comparator.comparing(CacheEntry::creationTime).reversed())
-			.map(CacheEntry::creationTime)
-			.skip(limit - 1)
-			.findFirst()
-			.ifPresent(cutoff -> entries.removeIf(entry -> cutoff.isAfter(entry.creationTime())));
+		// the sort is stable, so entries that tie keep the order of the collection
+		final var oldest = entries.toArray(CacheEntry[]::new);
+		Arrays.sort(oldest, OLDEST_FIRST);
+		for (int i = 0; i < Math.min(excess, oldest.length); i++) {
+			entries.remove(oldest[i]);
+		}
+	}
+
+	@Override
+	public void onInsert(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			e.insertion = insertions.incrementAndGet();
+		}
+	}
+
+	private static long insertion(final CacheEntry entry) {
+		return entry instanceof final AbstractCacheEntry e ? e.insertion : 0L;
 	}
 
 }
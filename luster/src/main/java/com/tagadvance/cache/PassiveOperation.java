@@ -1,33 +1,25 @@
 package com.tagadvance.cache;
 
+import static java.util.Objects.requireNonNull;
+
 import com.tagadvance.proxy.Invocation;
 import com.tagadvance.proxy.InvocationInterceptor;
-import com.tagadvance.reflection.M;
 import com.tagadvance.reflection.ReflectionException;
-import java.util.concurrent.atomic.AtomicReference;
 
 final class PassiveOperation implements InvocationInterceptor {
 
-	private static final AtomicReference<PassiveOperation> instance = new AtomicReference<>();
-
-	public static InvocationInterceptor getInstance() {
-		return instance.updateAndGet(i -> i == null ? new PassiveOperation() : i);
-	}
-
-	private PassiveOperation() {
+	private final Invoker invoker;
 
+	PassiveOperation(final Invoker invoker) {
+		this.invoker = requireNonNull(invoker, "invoker must not be null");
 	}
 
 	@Override
 	public Object onInvocation(final Invocation invocation) throws Throwable {
-		final var i = invocation.instance();
-		final var method = invocation.method();
-		final var args = invocation.args();
-
 		try {
-			return M.invoke(i, args).apply(method);
+			return invoker.invoke(invocation.args());
 		} catch (final ReflectionException e) {
-			throw CacheUtils.toValidException(e, method);
+			throw CacheUtils.toValidException(e, invocation.method());
 		}
 	}
 
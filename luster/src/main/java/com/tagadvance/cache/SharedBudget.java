@@ -0,0 +1,270 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SharedBudget} divides a single weight budget among several caches. Each
+ * {@link Member member} is guaranteed its {@link Member#reservedWeight() reservation} and never
+ * receives more than its {@link Member#capacity() capacity}. A member that joins is granted an even
+ * share of the rest of the budget, which is taken from the other members in proportion to their
+ * allowances above their reservations, so that earlier rebalancing is scaled down rather than
+ * undone. The budget is
+ * then {@link #rebalance() rebalanced} in small steps from the member that would benefit least
+ * from more space to the member that would benefit most.
+ * <p>
+ * Members are held weakly, so that the caches of a proxy that is no longer used may be collected;
+ * their allowances are returned to the budget and granted to the members that benefit most.
+ * <p>
+ * The benefit of more space is estimated from the misses for recently
+ * {@link EvictionHistory evicted} keys, per unit of weight, so that space flows to where it would
+ * have turned the most misses into hits.
+ */
+final class SharedBudget {
+
+	private static final Logger log = LoggerFactory.getLogger(SharedBudget.class);
+
+	/**
+	 * The budget is moved in steps of 1/{@value} of the total.
+	 */
+	private static final int STEPS = 64;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final List<WeakReference<Member>> members = new ArrayList<>();
+
+	private final long budget;
+
+	private final long step;
+
+	/**
+	 * @param budget the total weight, or number of entries for caches without a
+	 *               {@link Weigher weigher}, shared by every member
+	 */
+	SharedBudget(final long budget) {
+		if (budget <= 0) {
+			throw new IllegalArgumentException("budget must be positive");
+		}
+
+		this.budget = budget;
+		this.step = Math.max(1L, budget / STEPS);
+	}
+
+	/**
+	 * Adds a member and grants it an even share of the budget, taken first from the unallocated
+	 * budget and then from the other members in proportion to their allowances above their
+	 * reservations.
+	 *
+	 * @param member a {@link Member member}
+	 */
+	void register(final Member member) {
+		requireNonNull(member, "member must not be null");
+
+		lock.lock();
+		try {
+			final var others = members();
+			var free = budget;
+			for (final var other : others) {
+				free -= other.allowance();
+			}
+
+			final var all = new ArrayList<>(others);
+			all.add(member);
+			final var shares = evenShares(all);
+			final long share = shares.get(member);
+			var needed = Math.max(0L, share - Math.max(0L, free));
+
+			var discretionary = 0L;
+			for (final var other : others) {
+				discretionary += Math.max(0L, other.allowance() - reservation(other));
+			}
+			if (needed > 0 && discretionary > 0) {
+				final var total = Math.min(needed, discretionary);
+				var taken = 0L;
+				for (final var other : others) {
+					final var surplus = Math.max(0L, other.allowance() - reservation(other));
+					final var amount = Math.min(total - taken,
+						Math.min(surplus, (total * surplus + discretionary - 1) / discretionary));
+					if (amount > 0) {
+						other.allowance(other.allowance() - amount);
+						taken += amount;
+					}
+				}
+				needed -= taken;
+			}
+
+			member.allowance(share - needed);
+			members.add(new WeakReference<>(member));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves one step of the budget from the member that benefits least to the member that
+	 * benefits most, if they differ.
+	 */
+	void rebalance() {
+		lock.lock();
+		try {
+			final var members = members();
+			final List<Double> benefits = new ArrayList<>(members.size());
+			for (final var member : members) {
+				final var hits = member.drainEvictionHistoryHits();
+				benefits.add((double) hits / Math.max(1L, member.averageWeight()));
+			}
+
+			Member receiver = null;
+			var receiverBenefit = 0D;
+			for (int i = 0; i < members.size(); i++) {
+				final var member = members.get(i);
+				if (benefits.get(i) > receiverBenefit && member.allowance() < member.capacity()) {
+					receiver = member;
+					receiverBenefit = benefits.get(i);
+				}
+			}
+
+			if (receiver == null) {
+				return;
+			}
+
+			// the allowances of collected members are granted before any member must donate
+			var free = budget;
+			for (final var member : members) {
+				free -= member.allowance();
+			}
+			if (free > 0) {
+				final var amount = Math.min(step,
+					Math.min(free, receiver.capacity() - receiver.allowance()));
+				receiver.allowance(receiver.allowance() + amount);
+
+				return;
+			}
+
+			Member donor = null;
+			var donorBenefit = receiverBenefit;
+			for (int i = 0; i < members.size(); i++) {
+				final var member = members.get(i);
+				if (benefits.get(i) < donorBenefit && member.allowance() > reservation(member)) {
+					donor = member;
+					donorBenefit = benefits.get(i);
+				}
+			}
+
+			if (donor == null) {
+				return;
+			}
+
+			final var amount = Math.min(step, Math.min(donor.allowance() - reservation(donor),
+				receiver.capacity() - receiver.allowance()));
+			receiver.allowance(receiver.allowance() + amount);
+			donor.allowance(donor.allowance() - amount);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the members that have not been collected
+	 */
+	private List<Member> members() {
+		final List<Member> live = new ArrayList<>(members.size());
+		members.removeIf(reference -> {
+			final var member = reference.get();
+			if (member == null) {
+				return true;
+			}
+			live.add(member);
+
+			return false;
+		});
+
+		return live;
+	}
+
+	/**
+	 * Grants every member its reservation and divides the rest evenly, without exceeding any
+	 * member's capacity. Space that a member cannot use is divided among the others.
+	 *
+	 * @param members the members to divide the budget among
+	 * @return the even share of each member
+	 */
+	private Map<Member, Long> evenShares(final List<Member> members) {
+		final Map<Member, Long> shares = new IdentityHashMap<>();
+		var remaining = budget;
+		for (final var member : members) {
+			remaining -= reservation(member);
+		}
+
+		if (remaining < 0) {
+			log.warn("The reserved weight of every cache exceeds the shared budget of {}", budget);
+			remaining = 0;
+		}
+
+		final var sorted = new ArrayList<>(members);
+		sorted.sort(Comparator.comparingLong(member -> member.capacity() - reservation(member)));
+		for (int i = 0; i < sorted.size(); i++) {
+			final var member = sorted.get(i);
+			final var reservation = reservation(member);
+			final var share = remaining / (sorted.size() - i);
+			final var grant = Math.min(share, member.capacity() - reservation);
+			shares.put(member, reservation + grant);
+			remaining -= grant;
+		}
+
+		return shares;
+	}
+
+	private static long reservation(final Member member) {
+		return Math.min(Math.max(0L, member.reservedWeight()), member.capacity());
+	}
+
+	/**
+	 * A cache that draws on a {@link SharedBudget shared budget}.
+	 */
+	interface Member {
+
+		/**
+		 * @return the weight that this member keeps regardless of rebalancing
+		 */
+		long reservedWeight();
+
+		/**
+		 * @return the most weight that this member may use
+		 */
+		long capacity();
+
+		/**
+		 * @return the weight currently allotted to this member
+		 */
+		long allowance();
+
+		/**
+		 * Allots weight to this member. A member whose allowance shrinks should evict down to it.
+		 *
+		 * @param allowance the weight allotted to this member
+		 */
+		void allowance(final long allowance);
+
+		/**
+		 * @return the average weight of an entry
+		 */
+		long averageWeight();
+
+		/**
+		 * @return the number of misses for recently evicted keys since the last call
+		 */
+		long drainEvictionHistoryHits();
+
+	}
+
+}
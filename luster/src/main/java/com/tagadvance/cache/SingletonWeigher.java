@@ -0,0 +1,14 @@
+package com.tagadvance.cache;
+
+/**
+ * A {@link Weigher weigher} that assigns every value a weight of one, so that the weight of a cache
+ * is its size.
+ */
+public final class SingletonWeigher implements Weigher {
+
+	@Override
+	public int weigh(final Object[] args, final Object value) {
+		return 1;
+	}
+
+}
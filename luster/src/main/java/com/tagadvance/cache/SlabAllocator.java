@@ -0,0 +1,177 @@
+package com.tagadvance.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link SlabAllocator} carves off-heap memory into blocks. Memory is reserved from the operating
+ * system one direct {@link ByteBuffer slab} at a time, up to a fixed capacity, and each slab is
+ * divided into blocks of a single power-of-two size class when it is first needed by that class.
+ * Freed blocks are kept on a free list per size class and reused by the next allocation of the
+ * same class, so that the allocator never fragments and never returns memory.
+ * <p>
+ * The allocator is thread-safe. Reading and writing a block does not take its lock.
+ */
+final class SlabAllocator {
+
+	/**
+	 * The size of a slab, which is also the size of the largest block.
+	 */
+	static final int SLAB_SIZE = 1 << 20;
+
+	private static final int MIN_BLOCK_SHIFT = 6;
+
+	private static final int SIZE_CLASSES =
+		Integer.numberOfTrailingZeros(SLAB_SIZE) - MIN_BLOCK_SHIFT + 1;
+
+	private final long capacity;
+
+	private final List<ByteBuffer> slabs = new ArrayList<>();
+
+	/**
+	 * The free blocks of each size class, encoded by {@link #address(int, int)}.
+	 */
+	private final long[][] freeLists = new long[SIZE_CLASSES][];
+
+	private final int[] freeCounts = new int[SIZE_CLASSES];
+
+	private long allocated;
+
+	/**
+	 * @param capacity the maximum number of bytes to reserve, rounded down to a whole number of
+	 *                 slabs
+	 */
+	SlabAllocator(final long capacity) {
+		checkArgument(capacity >= SLAB_SIZE, "capacity must be at least %s", SLAB_SIZE);
+		this.capacity = capacity;
+		Arrays.setAll(freeLists, i -> new long[16]);
+	}
+
+	/**
+	 * @param size the number of bytes
+	 * @return a block of at least {@code size} bytes, or {@code null} if it is larger than a slab
+	 * or the capacity has been exhausted
+	 */
+	synchronized Block allocate(final int size) {
+		if (size > SLAB_SIZE) {
+			return null;
+		}
+
+		final var sizeClass = sizeClass(size);
+		if (freeCounts[sizeClass] == 0 && !carve(sizeClass)) {
+			return null;
+		}
+
+		final var address = freeLists[sizeClass][--freeCounts[sizeClass]];
+		final var blockSize = blockSize(sizeClass);
+		allocated += blockSize;
+
+		final var slab = (int) (address >>> 32);
+
+		return new Block(slab, slabs.get(slab), (int) address, size);
+	}
+
+	/**
+	 * Returns the block to the free list of its size class.
+	 */
+	synchronized void free(final Block block) {
+		final var sizeClass = sizeClass(block.length);
+		allocated -= blockSize(sizeClass);
+		push(sizeClass, address(block.slabIndex, block.offset));
+	}
+
+	/**
+	 * @return the number of bytes in allocated blocks
+	 */
+	synchronized long allocated() {
+		return allocated;
+	}
+
+	/**
+	 * Reserves a new slab and divides it into free blocks of the size class.
+	 */
+	private boolean carve(final int sizeClass) {
+		if ((long) (slabs.size() + 1) * SLAB_SIZE > capacity) {
+			return false;
+		}
+
+		final var slab = slabs.size();
+		slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE));
+		final var blockSize = blockSize(sizeClass);
+		for (int offset = SLAB_SIZE - blockSize; offset >= 0; offset -= blockSize) {
+			push(sizeClass, address(slab, offset));
+		}
+
+		return true;
+	}
+
+	private void push(final int sizeClass, final long address) {
+		var freeList = freeLists[sizeClass];
+		if (freeCounts[sizeClass] == freeList.length) {
+			freeList = freeLists[sizeClass] = Arrays.copyOf(freeList, freeList.length * 2);
+		}
+		freeList[freeCounts[sizeClass]++] = address;
+	}
+
+	private static long address(final int slab, final int offset) {
+		return (long) slab << 32 | offset;
+	}
+
+	private static int sizeClass(final int size) {
+		final var shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+
+		return Math.max(shift, MIN_BLOCK_SHIFT) - MIN_BLOCK_SHIFT;
+	}
+
+	private static int blockSize(final int sizeClass) {
+		return 1 << (sizeClass + MIN_BLOCK_SHIFT);
+	}
+
+	/**
+	 * An allocated block. The slab is shared, so the block is only ever accessed by absolute
+	 * index.
+	 */
+	static final class Block {
+
+		private final int slabIndex;
+
+		private final ByteBuffer slab;
+
+		private final int offset;
+
+		private final int length;
+
+		private Block(final int slabIndex, final ByteBuffer slab, final int offset,
+			final int length) {
+			this.slabIndex = slabIndex;
+			this.slab = slab;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * @return the number of bytes that were requested
+		 */
+		int length() {
+			return length;
+		}
+
+		void write(final byte[] bytes) {
+			checkArgument(bytes.length == length, "expected %s bytes", length);
+			slab.put(offset, bytes);
+		}
+
+		byte[] read() {
+			final var bytes = new byte[length];
+			slab.get(offset, bytes);
+
+			return bytes;
+		}
+
+	}
+
+}
@@ -1,26 +1,28 @@
 package com.tagadvance.cache;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.time.Instant;
-import java.util.Optional;
 
-class SoftCacheEntry implements CacheEntry {
+class SoftCacheEntry extends AbstractCacheEntry {
 
-	private final Instant creationTime;
-	private final SoftReference<Object> value;
+	private final SoftValue value;
 
-	SoftCacheEntry(final Object value) {
-		this(null, value);
+	SoftCacheEntry(final CacheKey key, final Object value) {
+		this(key, Ticker.system().read(), value, null);
 	}
 
-	SoftCacheEntry(final Instant creationTime, final Object value) {
-		this.creationTime = Optional.ofNullable(creationTime).orElseGet(Instant::now);
-		this.value = new SoftReference<>(value);
+	SoftCacheEntry(final CacheKey key, final long writeTime, final Object value) {
+		this(key, writeTime, value, null);
 	}
 
-	@Override
-	public Instant creationTime() {
-		return creationTime;
+	/**
+	 * @param queue the {@link ReferenceQueue queue} the value is enqueued on once it has been
+	 *              collected, if any
+	 */
+	SoftCacheEntry(final CacheKey key, final long writeTime, final Object value,
+		final ReferenceQueue<Object> queue) {
+		super(key, writeTime);
+		this.value = new SoftValue(value, queue, this);
 	}
 
 	@Override
@@ -28,4 +30,21 @@ class SoftCacheEntry implements CacheEntry {
 		return value.get();
 	}
 
+	private static final class SoftValue extends SoftReference<Object> implements ValueReference {
+
+		private final AbstractCacheEntry entry;
+
+		private SoftValue(final Object value, final ReferenceQueue<Object> queue,
+			final AbstractCacheEntry entry) {
+			super(value, queue);
+			this.entry = entry;
+		}
+
+		@Override
+		public AbstractCacheEntry entry() {
+			return entry;
+		}
+
+	}
+
 }
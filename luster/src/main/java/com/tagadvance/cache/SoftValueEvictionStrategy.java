@@ -2,6 +2,14 @@ package com.tagadvance.cache;
 
 import java.util.Collection;
 
+/**
+ * Removes every {@link SoftCacheEntry soft entry} whose value has been collected by searching all
+ * of the entries.
+ *
+ * @deprecated the cache removes entries as their soft or weak values are collected, so a search is
+ * no longer necessary
+ */
+@Deprecated
 public final class SoftValueEvictionStrategy implements EvictionStrategy {
 
 	@Override
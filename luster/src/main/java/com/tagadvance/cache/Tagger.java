@@ -0,0 +1,28 @@
+package com.tagadvance.cache;
+
+import java.util.Collection;
+
+/**
+ * A {@link Tagger tagger} derives the tags of each value from the method arguments or from the value
+ * itself, e.g. the tenant or entity that the value was derived from. Every entry with a tag may then
+ * be invalidated at once by {@link DefaultCacheFactory#invalidateTag(Object)}, across every cache
+ * created by the same factory.
+ * <p>
+ * Implementations must have a public constructor with no arguments.
+ *
+ * @see CacheConfiguration#tagger()
+ */
+@FunctionalInterface
+public interface Tagger {
+
+	/**
+	 * @param args  the method arguments
+	 * @param value the value returned by the method; for methods that return a
+	 *              {@link java.util.concurrent.CompletionStage CompletionStage} this is the result
+	 *              of the stage
+	 * @return the tags of the value, which must have a consistent {@code equals} and
+	 * {@code hashCode}, or an empty collection
+	 */
+	Collection<?> tags(final Object[] args, final Object value);
+
+}
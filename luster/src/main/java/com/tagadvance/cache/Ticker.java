@@ -0,0 +1,26 @@
+package com.tagadvance.cache;
+
+/**
+ * {@link Ticker} is the source of time for a {@link DefaultCacheFactory cache factory}. Entries
+ * record their write and access times, and expiration is measured, in its nanoseconds.
+ *
+ * @see DefaultCacheFactoryBuilder#withTicker(Ticker)
+ * @see ManualTicker
+ */
+@FunctionalInterface
+public interface Ticker {
+
+	/**
+	 * @return the number of nanoseconds elapsed since an arbitrary, fixed origin; only the
+	 * difference between two readings is meaningful
+	 */
+	long read();
+
+	/**
+	 * @return a {@link Ticker ticker} that reads {@link System#nanoTime()}
+	 */
+	static Ticker system() {
+		return System::nanoTime;
+	}
+
+}
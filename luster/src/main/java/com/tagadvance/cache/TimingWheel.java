@@ -0,0 +1,292 @@
+package com.tagadvance.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link TimingWheel} is a hierarchical hashed timing wheel. Scheduling, rescheduling, and
+ * cancelling a {@link Timer timer} are O(1) and expired timers are processed in bulk, one bucket at
+ * a time, each time the wheel is {@link #advance() advanced}.
+ * <p>
+ * Each level has {@value #BUCKETS} buckets and each bucket spans {@value #BUCKETS} buckets of the
+ * level below it. Timers that are too far in the future for a level are placed in a higher level
+ * and cascade down as the wheel turns.
+ *
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">Hashed
+ * and Hierarchical Timing Wheels</a>
+ */
+final class TimingWheel {
+
+	private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+	private static final int BUCKET_BITS = 6;
+
+	private static final int BUCKETS = 1 << BUCKET_BITS;
+
+	private static final int MASK = BUCKETS - 1;
+
+	private static final int LEVELS = 5;
+
+	private static final long MAXIMUM_DELAY = Long.MAX_VALUE >>> 1;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final LongSupplier ticker;
+
+	private final long origin;
+
+	private final int[] shifts;
+
+	private final Timer[][] wheel;
+
+	/**
+	 * The elapsed nanoseconds, relative to {@link #origin}, as of the last call to
+	 * {@link #advance()}.
+	 */
+	private long nanos;
+
+	private int size;
+
+	/**
+	 * @param tick the resolution of the wheel; rounded up to the nearest power of two nanoseconds
+	 * @param unit the tick {@link TimeUnit unit}
+	 */
+	TimingWheel(final long tick, final TimeUnit unit) {
+		this(tick, unit, System::nanoTime);
+	}
+
+	/**
+	 * @param tick   the resolution of the wheel; rounded up to the nearest power of two
+	 *               nanoseconds
+	 * @param unit   the tick {@link TimeUnit unit}
+	 * @param ticker a source of nanoseconds, e.g. {@link System#nanoTime()}
+	 */
+	TimingWheel(final long tick, final TimeUnit unit, final LongSupplier ticker) {
+		requireNonNull(unit, "unit must not be null");
+		this.ticker = requireNonNull(ticker, "ticker must not be null");
+
+		final var tickNanos = unit.toNanos(tick);
+		if (tickNanos <= 0) {
+			throw new IllegalArgumentException("tick must be positive");
+		}
+
+		final var tickShift = Long.SIZE - Long.numberOfLeadingZeros(tickNanos - 1);
+		this.shifts = new int[LEVELS + 1];
+		for (int i = 0; i < shifts.length; i++) {
+			shifts[i] = Math.min(tickShift + i * BUCKET_BITS, Long.SIZE - 2);
+		}
+
+		this.wheel = new Timer[LEVELS][BUCKETS];
+		for (final var buckets : wheel) {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new Timer();
+			}
+		}
+
+		this.origin = ticker.getAsLong();
+	}
+
+	/**
+	 * Schedules the supplied {@link Timer timer}. If the timer is already scheduled then it is
+	 * rescheduled.
+	 *
+	 * @param timer a {@link Timer timer}
+	 * @param delay the delay from now
+	 * @param unit  the delay {@link TimeUnit unit}
+	 */
+	void schedule(final Timer timer, final long delay, final TimeUnit unit) {
+		requireNonNull(timer, "timer must not be null");
+		final var delayNanos = Math.min(Math.max(0L, unit.toNanos(delay)), MAXIMUM_DELAY);
+
+		lock.lock();
+		try {
+			if (timer.isScheduled()) {
+				unlink(timer);
+			} else {
+				size++;
+			}
+
+			timer.deadline = Math.max(elapsed(), nanos) + delayNanos;
+			link(timer);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels the supplied {@link Timer timer} if it is scheduled.
+	 *
+	 * @param timer a {@link Timer timer}
+	 */
+	void cancel(final Timer timer) {
+		if (timer == null) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			if (timer.isScheduled()) {
+				unlink(timer);
+				size--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Turns the wheel to the current time and runs every {@link Timer timer} that has expired.
+	 * Timers are run by the calling thread after the wheel has been unlocked.
+	 *
+	 * @return the number of expired timers
+	 */
+	int advance() {
+		final List<Timer> expired = new ArrayList<>();
+
+		lock.lock();
+		try {
+			final var previousNanos = nanos;
+			final var currentNanos = Math.max(elapsed(), previousNanos);
+			nanos = currentNanos;
+
+			for (int level = 0; level < LEVELS; level++) {
+				final var previousTicks = previousNanos >>> shifts[level];
+				final var currentTicks = currentNanos >>> shifts[level];
+				final var delta = currentTicks - previousTicks;
+				if (delta <= 0L) {
+					break;
+				}
+
+				expire(level, previousTicks, delta, expired);
+			}
+
+			size -= expired.size();
+		} finally {
+			lock.unlock();
+		}
+
+		for (final var timer : expired) {
+			try {
+				timer.task.run();
+			} catch (final RuntimeException e) {
+				log.warn("Timer failed!", e);
+			}
+		}
+
+		return expired.size();
+	}
+
+	/**
+	 * @return the number of scheduled {@link Timer timers}
+	 */
+	int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private long elapsed() {
+		return ticker.getAsLong() - origin;
+	}
+
+	private void expire(final int level, final long previousTicks, final long delta,
+		final List<Timer> expired) {
+		final var buckets = wheel[level];
+		// the current bucket is included because it may hold timers that cascade from this level
+		final var start = (int) (previousTicks & MASK);
+		final var end = start + (int) Math.min(delta + 1, BUCKETS);
+		for (int i = start; i < end; i++) {
+			final var sentinel = buckets[i & MASK];
+			var timer = sentinel.next;
+			sentinel.prev = sentinel;
+			sentinel.next = sentinel;
+
+			while (timer != sentinel) {
+				final var next = timer.next;
+				timer.prev = null;
+				timer.next = null;
+
+				if (timer.deadline <= nanos) {
+					expired.add(timer);
+				} else {
+					link(timer);
+				}
+
+				timer = next;
+			}
+		}
+	}
+
+	private void link(final Timer timer) {
+		final var sentinel = findBucket(timer.deadline);
+		timer.prev = sentinel.prev;
+		timer.next = sentinel;
+		sentinel.prev.next = timer;
+		sentinel.prev = timer;
+	}
+
+	private static void unlink(final Timer timer) {
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.prev = null;
+		timer.next = null;
+	}
+
+	private Timer findBucket(final long deadline) {
+		final var duration = deadline - nanos;
+		for (int level = 0; level < LEVELS - 1; level++) {
+			if (duration < 1L << shifts[level + 1]) {
+				return wheel[level][(int) ((deadline >>> shifts[level]) & MASK)];
+			}
+		}
+
+		final var level = LEVELS - 1;
+
+		return wheel[level][(int) ((deadline >>> shifts[level]) & MASK)];
+	}
+
+	/**
+	 * A task that may be {@link #schedule(Timer, long, TimeUnit) scheduled} on a
+	 * {@link TimingWheel timing wheel}. A timer may be rescheduled any number of times without
+	 * allocation.
+	 */
+	static final class Timer {
+
+		private final Runnable task;
+
+		private long deadline;
+
+		private Timer prev;
+
+		private Timer next;
+
+		Timer(final Runnable task) {
+			this.task = requireNonNull(task, "task must not be null");
+		}
+
+		/**
+		 * Creates a sentinel.
+		 */
+		private Timer() {
+			this.task = null;
+			this.prev = this;
+			this.next = this;
+		}
+
+		private boolean isScheduled() {
+			return next != null;
+		}
+
+	}
+
+}
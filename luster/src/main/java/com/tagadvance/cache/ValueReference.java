@@ -0,0 +1,15 @@
+package com.tagadvance.cache;
+
+/**
+ * A soft or weak reference to the value of an {@link AbstractCacheEntry entry}. The reference is
+ * enqueued once the value has been collected, so that the cache may remove just that entry rather
+ * than search for it.
+ */
+interface ValueReference {
+
+	/**
+	 * @return the entry whose value is referenced
+	 */
+	AbstractCacheEntry entry();
+
+}
@@ -0,0 +1,48 @@
+package com.tagadvance.cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A {@link CacheEntry cache entry} whose value may be collected as soon as nothing else refers to
+ * it.
+ *
+ * @see CacheConfiguration#weakValues()
+ */
+class WeakCacheEntry extends AbstractCacheEntry {
+
+	private final WeakValue value;
+
+	/**
+	 * @param queue the {@link ReferenceQueue queue} the value is enqueued on once it has been
+	 *              collected, if any
+	 */
+	WeakCacheEntry(final CacheKey key, final long writeTime, final Object value,
+		final ReferenceQueue<Object> queue) {
+		super(key, writeTime);
+		this.value = new WeakValue(value, queue, this);
+	}
+
+	@Override
+	public Object value() {
+		return value.get();
+	}
+
+	private static final class WeakValue extends WeakReference<Object> implements ValueReference {
+
+		private final AbstractCacheEntry entry;
+
+		private WeakValue(final Object value, final ReferenceQueue<Object> queue,
+			final AbstractCacheEntry entry) {
+			super(value, queue);
+			this.entry = entry;
+		}
+
+		@Override
+		public AbstractCacheEntry entry() {
+			return entry;
+		}
+
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.tagadvance.cache;
+
+/**
+ * A {@link Weigher weigher} calculates the weight of a cached value, e.g. its approximate size in
+ * bytes. Weights are calculated once, when a value is cached, and are compared against
+ * {@link CacheConfiguration#maximumWeight()}.
+ * <p>
+ * Implementations must have a public constructor with no arguments.
+ */
+@FunctionalInterface
+public interface Weigher {
+
+	/**
+	 * @param args  the method arguments
+	 * @param value the value returned by the method; for methods that return a
+	 *              {@link java.util.concurrent.CompletionStage CompletionStage} this is the stage
+	 * @return the weight of the value; must not be negative
+	 */
+	int weigh(final Object[] args, final Object value);
+
+}
@@ -0,0 +1,182 @@
+package com.tagadvance.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link WindowTinyLfuEvictionStrategy} is a frequency-aware eviction strategy that resists scans.
+ * New entries enter a small LRU admission window. Entries that fall out of the window become
+ * candidates for the main region, a segmented LRU of probation and protected entries. A candidate
+ * is only admitted if a {@link FrequencySketch frequency sketch} estimates that it is used more
+ * often than the probation entry it would displace; otherwise the candidate itself is evicted.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission
+ * Policy</a>
+ */
+public final class WindowTinyLfuEvictionStrategy implements EvictionStrategy {
+
+	private static final double WINDOW_PERCENTAGE = 0.01D;
+
+	private static final double PROTECTED_PERCENTAGE = 0.8D;
+
+	/**
+	 * The number of entries that the {@link FrequencySketch sketch} is sized for until the
+	 * strategy is {@link #initialize(int) initialized}.
+	 */
+	private static final long DEFAULT_EXPECTED_SIZE = 256L;
+
+	/**
+	 * The most entries that the sketch is sized for up front, so that an unbounded cache does not
+	 * allocate a sketch for {@link Integer#MAX_VALUE} entries; it grows beyond this if necessary.
+	 */
+	private static final long MAXIMUM_EXPECTED_SIZE = 1L << 16;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final FrequencySketch sketch = new FrequencySketch();
+
+	private final AccessOrderDeque window = new AccessOrderDeque();
+
+	private final AccessOrderDeque probation = new AccessOrderDeque();
+
+	private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+
+	private long protectedMaximum = Long.MAX_VALUE;
+
+	public WindowTinyLfuEvictionStrategy() {
+		sketch.ensureCapacity(DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Sizes the sketch for the maximum size of the cache, so that the frequencies recorded while
+	 * the cache warms up are kept.
+	 */
+	@Override
+	public void initialize(final int maximumSize) {
+		lock.lock();
+		try {
+			sketch.ensureCapacity(Math.min(maximumSize, MAXIMUM_EXPECTED_SIZE));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void evict(final Collection<CacheEntry> entries, final int limit) {
+		final var size = entries.size();
+		final List<AbstractCacheEntry> victims = new ArrayList<>();
+		lock.lock();
+		try {
+			// only a cache larger than the initial sketch grows it, which keeps every counter
+			sketch.ensureCapacity(Math.min(size, limit));
+			if (size <= limit) {
+				return;
+			}
+
+			final var windowMaximum = Math.max(1L, (long) (limit * WINDOW_PERCENTAGE));
+			final var mainMaximum = Math.max(0L, limit - windowMaximum);
+			protectedMaximum = (long) (mainMaximum * PROTECTED_PERCENTAGE);
+
+			// entries that overflow the window become candidates at the back of probation; each
+			// candidate is compared with the victim in turn, whether or not the previous one was
+			// admitted
+			AbstractCacheEntry candidate = null;
+			while (window.size() > windowMaximum) {
+				final var entry = window.pollFirst();
+				probation.addLast(entry);
+				if (candidate == null) {
+					candidate = entry;
+				}
+			}
+
+			while (probation.size() + protectedDeque.size() > mainMaximum) {
+				if (probation.isEmpty()) {
+					probation.addLast(protectedDeque.pollFirst());
+				}
+
+				final var victim = probation.peekFirst();
+				if (candidate == null || candidate == victim) {
+					candidate = candidate == null ? null : candidate.next;
+					probation.remove(victim);
+					victims.add(victim);
+				} else if (admit(candidate, victim)) {
+					candidate = candidate.next;
+					probation.remove(victim);
+					victims.add(victim);
+				} else {
+					final var rejected = candidate;
+					candidate = candidate.next;
+					probation.remove(rejected);
+					victims.add(rejected);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		victims.forEach(entries::remove);
+	}
+
+	@Override
+	public void onInsert(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			lock.lock();
+			try {
+				sketch.increment(e.key().hashCode());
+				if (e.deque == null) {
+					window.addLast(e);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void onAccess(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			lock.lock();
+			try {
+				sketch.increment(e.key().hashCode());
+				if (window.contains(e)) {
+					window.moveToBack(e);
+				} else if (probation.contains(e)) {
+					probation.remove(e);
+					protectedDeque.addLast(e);
+					while (protectedDeque.size() > protectedMaximum) {
+						probation.addLast(protectedDeque.pollFirst());
+					}
+				} else if (protectedDeque.contains(e)) {
+					protectedDeque.moveToBack(e);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void onRemove(final CacheEntry entry) {
+		if (entry instanceof final AbstractCacheEntry e) {
+			lock.lock();
+			try {
+				final var deque = e.deque;
+				if (deque == window || deque == probation || deque == protectedDeque) {
+					deque.remove(e);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private boolean admit(final AbstractCacheEntry candidate, final AbstractCacheEntry victim) {
+		final var candidateFrequency = sketch.frequency(candidate.key().hashCode());
+		final var victimFrequency = sketch.frequency(victim.key().hashCode());
+
+		return candidateFrequency > victimFrequency;
+	}
+
+}
@@ -0,0 +1,134 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.lang.ref.ReferenceQueue;
+import java.net.URL;
+import java.net.URLClassLoader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link CacheKey}.
+ */
+class CacheKeyTest {
+
+	@Test
+	void testThatKeysAreSpecializedByArity() throws Exception {
+		final var method = Foo.class.getDeclaredMethod("bar", Object[].class);
+
+		assertEquals(CacheKey.Key0.class, CacheKey.of(method, new Object[0]).getClass());
+		assertEquals(CacheKey.Key1.class, CacheKey.of(method, new Object[]{1}).getClass());
+		assertEquals(CacheKey.Key2.class, CacheKey.of(method, new Object[]{1, 2}).getClass());
+		assertEquals(CacheKey.KeyN.class, CacheKey.of(method, new Object[]{1, 2, 3}).getClass());
+	}
+
+	@Test
+	void testEquality() throws Exception {
+		final var method = Foo.class.getDeclaredMethod("bar", Object[].class);
+		for (final var args : new Object[][]{{}, {"a"}, {"a", null}, {"a", "b", "c"}}) {
+			final var key = CacheKey.of(method, args);
+			final var other = CacheKey.of(method, args.clone());
+
+			assertEquals(key, other);
+			assertEquals(key.hashCode(), other.hashCode());
+			assertArrayEquals(args, key.args());
+		}
+
+		assertNotEquals(CacheKey.of(method, new Object[]{"a"}),
+			CacheKey.of(method, new Object[]{"b"}));
+		assertNotEquals(CacheKey.of(method, new Object[]{"a"}),
+			CacheKey.of(method, new Object[]{"a", null}));
+	}
+
+	@Test
+	void testThatArrayArgumentsAreComparedDeeply() throws Exception {
+		final var method = Foo.class.getDeclaredMethod("bar", Object[].class);
+		final var key = CacheKey.of(method, new Object[]{new int[]{1, 2}});
+		final var other = CacheKey.of(method, new Object[]{new int[]{1, 2}});
+
+		assertEquals(key, other);
+		assertEquals(key.hashCode(), other.hashCode());
+	}
+
+	@Test
+	void testThatWeakKeysCompareArgumentsByIdentity() throws Exception {
+		final var method = Foo.class.getDeclaredMethod("bar", Object[].class);
+		final var queue = new ReferenceQueue<>();
+		final var arg = new int[]{1, 2};
+		final var key = CacheKey.weak(method, CacheKey.methodId(method), new Object[]{arg, null},
+			queue);
+
+		assertEquals(key, CacheKey.weak(method, CacheKey.methodId(method),
+			new Object[]{arg, null}, queue));
+		assertNotEquals(key, CacheKey.weak(method, CacheKey.methodId(method),
+			new Object[]{new int[]{1, 2}, null}, queue));
+		assertNotEquals(key, CacheKey.of(method, new Object[]{arg, null}));
+		assertArrayEquals(new Object[]{arg, null}, key.args());
+	}
+
+	@Test
+	void testThatProbesEqualTheWeakKeysOfTheSameArguments() throws Exception {
+		final var method = Foo.class.getDeclaredMethod("bar", Object[].class);
+		final var methodId = CacheKey.methodId(method);
+		final var queue = new ReferenceQueue<>();
+		final var arg = new int[]{1, 2};
+		final var probe = CacheKey.probe(method, methodId, new Object[]{arg, null});
+		final var key = probe.weaken(queue);
+
+		assertEquals(probe, key);
+		assertEquals(key, probe);
+		assertEquals(key.hashCode(), probe.hashCode());
+		assertEquals(key, CacheKey.weak(method, methodId, new Object[]{arg, null}, queue));
+		assertEquals(probe, CacheKey.probe(method, methodId, new Object[]{arg, null}));
+		assertNotEquals(probe, CacheKey.weak(method, methodId,
+			new Object[]{new int[]{1, 2}, null}, queue));
+		assertNotEquals(probe, CacheKey.weak(method, methodId, new Object[]{arg, arg}, queue));
+	}
+
+	@Test
+	void testThatMethodIdsAreInternedBySignature() throws Exception {
+		final var bar = Foo.class.getDeclaredMethod("bar", Object[].class);
+		final var baz = Foo.class.getDeclaredMethod("baz", Object[].class);
+
+		assertEquals(CacheKey.methodId(bar), CacheKey.methodId(Bar.class.getMethod("bar",
+			Object[].class)));
+		assertNotEquals(CacheKey.methodId(bar), CacheKey.methodId(baz));
+		assertNotEquals(CacheKey.of(bar, new Object[]{1}), CacheKey.of(baz, new Object[]{1}));
+	}
+
+	@Test
+	void testThatMethodIdsDoNotDependOnTheClassLoader() throws Exception {
+		final var location = Foo.class.getProtectionDomain().getCodeSource().getLocation();
+		try (final var loader = new URLClassLoader(new URL[]{location}, null)) {
+			final var reloaded = loader.loadClass(Foo.class.getName());
+			assertNotSame(Foo.class, reloaded);
+
+			final var bar = Foo.class.getDeclaredMethod("bar", Object[].class);
+			assertEquals(CacheKey.methodId(bar),
+				CacheKey.methodId(reloaded.getDeclaredMethod("bar", Object[].class)));
+		}
+	}
+
+	interface Bar {
+
+		Object bar(Object... args);
+
+	}
+
+	static final class Foo implements Bar {
+
+		@Override
+		public Object bar(final Object... args) {
+			return null;
+		}
+
+		Object baz(final Object... args) {
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link DefaultCacheFactoryBuilder}.
+ */
+class DefaultCacheFactoryBuilderTest {
+
+	@Test
+	void testBuild() {
+		final var factory = new DefaultCacheFactoryBuilder().withScheduledExecutorService(
+				Executors.newSingleThreadScheduledExecutor())
+			.withRefreshExecutor(ForkJoinPool.commonPool())
+			.withSharedBudget(1_000)
+			.build();
+
+		assertNotNull(factory, "factory is null");
+	}
+
+	@Test
+	void testThatTheSharedBudgetMustBePositive() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new DefaultCacheFactoryBuilder().withSharedBudget(0));
+	}
+
+}
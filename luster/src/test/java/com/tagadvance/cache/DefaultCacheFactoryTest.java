@@ -7,7 +7,31 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -54,6 +78,30 @@ class DefaultCacheFactoryTest {
 		});
 	}
 
+	@Test
+	void testThatHitsExtendExpireAfterAccess() throws FooException {
+		final var ticker = new ManualTicker();
+		final var factory = new DefaultCacheFactoryBuilder().withTicker(ticker).build();
+		final var controller = factory.newCache(ExpireAfterAccess.class,
+			new ExpensiveOperationSuccess());
+
+		final ExpensiveOperation operation = controller.proxy();
+		final var o1 = operation.expensiveOperation();
+		for (int i = 0; i < 4; i++) {
+			// each hit comes before the entry has been idle for its delay of 100 ms
+			ticker.advance(60L, TimeUnit.MILLISECONDS);
+			factory.advanceTimers();
+
+			assertSame(o1, operation.expensiveOperation());
+		}
+
+		controller.getCache("ExpireAfterAccess").map(Cache::statistics).ifPresent(stats -> {
+			assertEquals(4, stats.hitCount());
+			assertEquals(1, stats.missCount());
+			assertEquals(0, stats.evictionCount());
+		});
+	}
+
 	@Test
 	void testExpireAfterWrite() throws FooException, InterruptedException {
 		final var controller = new DefaultCacheFactory().newCache(ExpireAfterWrite.class,
@@ -93,94 +141,1599 @@ class DefaultCacheFactoryTest {
 		final var o2 = operation.expensiveOperation();
 		assertSame(o1, o2);
 
-		// expire and wait for refresh
-		Thread.sleep(300);
+		// become stale
+		Thread.sleep(150);
 
+		// a stale read is served the current value and triggers a refresh
 		final var o3 = operation.expensiveOperation();
-		assertNotSame(o1, o3);
+		assertSame(o1, o3);
+
+		// wait for refresh
+		Thread.sleep(50);
+
+		final var o4 = operation.expensiveOperation();
+		assertNotSame(o1, o4);
 
 		controller.getCache("RefreshAfterWrite").map(Cache::statistics).ifPresent(stats -> {
-			assertEquals(2, stats.hitCount());
+			assertEquals(3, stats.hitCount());
 			assertEquals(1, stats.missCount());
 			assertEquals(2, stats.loadSuccessCount());
 			assertEquals(0, stats.loadExceptionCount());
 			assertTrue(stats.averageLoadTime() > 0);
 			assertTrue(stats.totalLoadTime() > 0);
-			assertEquals(1, stats.evictionCount());
+			assertEquals(0, stats.evictionCount());
 		});
 	}
 
 	@Test
-	void testMaxSize() {
-		final var controller = new DefaultCacheFactory().newCache(MaxSize.class,
-			(Function<Integer, Object>) integer -> new Object());
+	void testThatUnreadEntriesAreNotRefreshed() throws FooException, InterruptedException {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactoryBuilder()
+			.withRefreshExecutor(Runnable::run)
+			.build()
+			.newCache(RefreshAfterWrite.class, (RefreshAfterWrite) () -> loads.incrementAndGet());
 
-		final MaxSize operation = controller.proxy();
-		operation.apply(1);
-		operation.apply(2);
-		operation.apply(3);
+		final ExpensiveOperation operation = controller.proxy();
+		operation.expensiveOperation();
 
-		controller.getCache("MaxSize").map(Cache::size).ifPresent(size -> assertEquals(1, size));
+		Thread.sleep(300);
+		assertEquals(1, loads.get());
+
+		// the refresh runs on the calling thread
+		assertEquals(1, operation.expensiveOperation());
+		assertEquals(2, loads.get());
+		assertEquals(2, operation.expensiveOperation());
 	}
 
 	@Test
-	void testSoftValues() throws FooException {
-		final var controller = new DefaultCacheFactory().newCache(SoftValues.class,
-			new ExpensiveOperationSuccess());
+	void testThatHotEntriesExpireEarly() throws FooException {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactoryBuilder()
+			.withRefreshExecutor(Runnable::run)
+			.build()
+			.newCache(ExpireEarly.class, (ExpireEarly) () -> {
+				try {
+					Thread.sleep(5);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				return loads.incrementAndGet();
+			});
 
 		final ExpensiveOperation operation = controller.proxy();
-		final var o1 = operation.expensiveOperation();
-		assertNotNull(o1);
-		final var o2 = operation.expensiveOperation();
-		assertSame(o1, o2);
+		assertEquals(1, operation.expensiveOperation());
+
+		// well before expiration, the load time outweighs the remaining time
+		assertEquals(1, operation.expensiveOperation());
+		assertEquals(2, loads.get());
+		assertEquals(2, operation.expensiveOperation());
 	}
 
-	public interface ExpensiveOperation {
+	@Test
+	void testExpireAfterWriteHook() throws InterruptedException {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(Token.class, (Token) millis -> {
+			loads.incrementAndGet();
 
-		Object expensiveOperation() throws FooException;
+			return millis;
+		});
+
+		final Token operation = controller.proxy();
+		operation.apply(50);
+		operation.apply(1_000);
 
+		// wait for the short-lived entry to expire
+		Thread.sleep(150);
+
+		operation.apply(50);
+		operation.apply(1_000);
+		assertEquals(3, loads.get());
 	}
 
-	public static class ExpensiveOperationSuccess implements ExpensiveOperation {
+	@Test
+	void testExpiry() throws InterruptedException {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(ResultExpiry.class,
+			(ResultExpiry) millis -> {
+				loads.incrementAndGet();
 
-		public Object expensiveOperation() {
-			return new Object();
+				return millis;
+			});
+
+		final ResultExpiry operation = controller.proxy();
+		operation.apply(50);
+		operation.apply(1_000);
+
+		// wait for the short-lived entry to expire
+		Thread.sleep(150);
+
+		operation.apply(50);
+		operation.apply(1_000);
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void testNegativeCaching() throws InterruptedException {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(NegativeCache.class,
+			(NegativeCache) i -> {
+				loads.incrementAndGet();
+				switch (i) {
+					case 0 -> throw new FooException();
+					case 1 -> throw new IllegalStateException();
+					default -> throw new IllegalArgumentException();
+				}
+			});
+
+		final NegativeCache operation = controller.proxy();
+		for (int i = 0; i < 2; i++) {
+			assertThrows(FooException.class, () -> operation.load(0));
+			assertThrows(IllegalStateException.class, () -> operation.load(1));
+			assertThrows(IllegalArgumentException.class, () -> operation.load(2));
 		}
+		// only the exception that was not chosen is thrown again
+		assertEquals(4, loads.get());
 
+		controller.getCache("NegativeCache").map(Cache::statistics).ifPresent(stats -> {
+			assertEquals(2, stats.negativeHitCount());
+			assertEquals(2, stats.negativeLoadCount());
+			assertEquals(4, stats.loadExceptionCount());
+		});
+
+		// wait for the exceptions to expire
+		Thread.sleep(150);
+
+		assertThrows(FooException.class, () -> operation.load(0));
+		assertEquals(5, loads.get());
 	}
 
-	public static class ExpensiveOperationFailure implements ExpensiveOperation {
+	@Test
+	void testStaleIfError() {
+		final var ticker = new ManualTicker();
+		final var factory = new DefaultCacheFactoryBuilder().withTicker(ticker).build();
+		final var failing = new AtomicBoolean();
+		final var controller = factory.newCache(StaleIfError.class,
+			(StaleIfError) i -> {
+				if (failing.get()) {
+					throw new IllegalStateException();
+				}
 
-		public Object expensiveOperation() throws FooException {
-			throw new FooException();
+				return new Object();
+			});
+
+		final StaleIfError operation = controller.proxy();
+		final var o1 = operation.apply(1);
+		failing.set(true);
+
+		ticker.advance(100L, TimeUnit.MILLISECONDS);
+		factory.advanceTimers();
+		assertSame(o1, operation.apply(1));
+
+		// the value is now too stale to be served
+		ticker.advance(200L, TimeUnit.MILLISECONDS);
+		assertThrows(IllegalStateException.class, () -> operation.apply(1));
+
+		controller.getCache("StaleIfError").map(Cache::statistics)
+			.ifPresent(stats -> assertEquals(1, stats.staleServedCount()));
+	}
+
+	@Test
+	void testBulkLoad() {
+		final var requests = new ArrayList<Collection<Integer>>();
+		final var controller = new DefaultCacheFactory().newCache(BulkLoad.class,
+			(BulkLoad) ids -> {
+				requests.add(List.copyOf(ids));
+
+				return ids.stream()
+					.filter(id -> id != 0)
+					.collect(Collectors.toMap(Function.identity(), id -> "#" + id));
+			});
+
+		final BulkLoad operation = controller.proxy();
+		assertEquals(Map.of(1, "#1", 2, "#2"), operation.findAll(List.of(0, 1, 2)));
+		assertEquals(Map.of(1, "#1", 2, "#2", 3, "#3"), operation.findAll(List.of(1, 2, 3, 3)));
+		// keys that were absent from the result are requested again
+		assertEquals(List.of(List.of(0, 1, 2), List.of(3)), requests);
+
+		controller.getCache("BulkLoad").map(Cache::statistics).ifPresent(stats -> {
+			assertEquals(2, stats.hitCount());
+			assertEquals(4, stats.missCount());
+			assertEquals(2, stats.loadSuccessCount());
+		});
+
+		assertEquals(Map.of(), operation.findAll(List.of(0)));
+		assertEquals(3, requests.size());
+	}
+
+	@Test
+	void testThatBulkMethodsMustReturnAMap() {
+		final InvalidBulkLoad operation = new DefaultCacheFactory().newCache(
+			InvalidBulkLoad.class, (InvalidBulkLoad) ids -> ids).proxy();
+
+		assertThrows(IllegalArgumentException.class, () -> operation.findAll(List.of(1)));
+	}
+
+	@Test
+	void testCacheEvict() {
+		final var names = new ConcurrentHashMap<Integer, String>(Map.of(1, "a", 2, "b"));
+		final var controller = new DefaultCacheFactory().newCache(Repository.class,
+			new Users(names));
+
+		final Repository operation = controller.proxy();
+		assertEquals("a", operation.find(1));
+		assertEquals("b", operation.find(2));
+
+		operation.rename(1, "c");
+		names.put(2, "d");
+		assertEquals("c", operation.find(1));
+		// only the renamed entry was evicted
+		assertEquals("b", operation.find(2));
+
+		operation.reset();
+		assertEquals("d", operation.find(2));
+	}
+
+	@Test
+	void testThatCachePutSkipsCachesOfOtherSignatures() {
+		final var names = new ConcurrentHashMap<Integer, String>(Map.of(1, "a"));
+		final Catalog operation = new DefaultCacheFactory().newCache(Catalog.class, new Catalog() {
+			@Override
+			public String findName(final Integer id) {
+				return names.get(id);
+			}
+
+			@Override
+			public Integer findSize(final Integer id) {
+				return names.get(id).length();
+			}
+
+			@Override
+			public Long findCount(final Long id) {
+				return id;
+			}
+
+			@Override
+			public String rename(final Integer id, final String name) {
+				names.put(id, name);
+
+				return name;
+			}
+		}).proxy();
+		assertEquals("a", operation.findName(1));
+		assertEquals(1, operation.findSize(1));
+		assertEquals(1L, operation.findCount(1L));
+
+		assertEquals("bb", operation.rename(1, "bb"));
+		assertEquals("bb", operation.findName(1));
+		// neither a value of another type nor a key of another type was put
+		assertEquals(1, operation.findSize(1));
+		assertEquals(1L, operation.findCount(1L));
+	}
+
+	@Test
+	void testThatCachePutRequiresAValue() {
+		final VoidPut operation = new DefaultCacheFactory().newCache(VoidPut.class,
+			(VoidPut) id -> {
+			}).proxy();
+
+		assertThrows(IllegalArgumentException.class, () -> operation.touch(1));
+	}
+
+	@Test
+	void testCachePut() {
+		final var names = new ConcurrentHashMap<Integer, String>(Map.of(1, "a"));
+		final var controller = new DefaultCacheFactory().newCache(Repository.class,
+			new Users(names));
+
+		final Repository operation = controller.proxy();
+		assertEquals("a", operation.find(1));
+		assertEquals("b", operation.update(1, "b"));
+		assertEquals("b", operation.find(1));
+
+		controller.getCache("Users").map(Cache::statistics).ifPresent(stats -> {
+			assertEquals(1, stats.hitCount());
+			assertEquals(1, stats.missCount());
+		});
+	}
+
+	@Test
+	void testThatAnEvictOrPutSupersedesALoadInFlight()
+		throws InterruptedException, ExecutionException {
+		assertThatALoadInFlightIsSuperseded(operation -> operation.rename(1, "b"), "b");
+		assertThatALoadInFlightIsSuperseded(operation -> operation.update(1, "b"), "b");
+		assertThatALoadInFlightIsSuperseded(operation -> {
+			operation.rename(1, "b");
+			operation.reset();
+		}, "b");
+	}
+
+	/**
+	 * Reads the name of user 1 in a load that is held in flight while the specified mutation
+	 * runs, then asserts that the load did not cache the name it read.
+	 */
+	private static void assertThatALoadInFlightIsSuperseded(final Consumer<Repository> mutation,
+		final String expected) throws InterruptedException, ExecutionException {
+		final var read = new CountDownLatch(1);
+		final var resume = new CountDownLatch(1);
+		final var hold = new AtomicBoolean(true);
+		final var names = new ConcurrentHashMap<Integer, String>(Map.of(1, "a")) {
+			@Override
+			public String get(final Object key) {
+				final var name = super.get(key);
+				if (hold.compareAndSet(true, false)) {
+					read.countDown();
+					try {
+						resume.await();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+
+				return name;
+			}
+		};
+		final Repository operation = new DefaultCacheFactory().newCache(Repository.class,
+			new Users(names)).proxy();
+
+		final var executor = Executors.newSingleThreadExecutor();
+		try {
+			final var load = executor.submit(() -> operation.find(1));
+			read.await();
+			mutation.accept(operation);
+			resume.countDown();
+
+			// the caller of the superseded load still receives what it read
+			assertEquals("a", load.get());
+			assertEquals(expected, operation.find(1));
+		} finally {
+			executor.shutdown();
 		}
+	}
+
+	@Test
+	void testInvalidateTag() {
+		final var loads = new AtomicInteger();
+		final var factory = new DefaultCacheFactory();
+		final Tenants operation = factory.newCache(Tenants.class, new Tenants() {
+			@Override
+			public String findUser(final String tenant, final Integer id) {
+				loads.incrementAndGet();
+
+				return tenant + "/" + id;
+			}
+
+			@Override
+			public String findGroup(final String tenant, final Integer id) {
+				loads.incrementAndGet();
 
+				return tenant + "/" + id;
+			}
+		}).proxy();
+
+		operation.findUser("a", 1);
+		operation.findGroup("a", 1);
+		operation.findUser("b", 1);
+		assertEquals(3, loads.get());
+
+		factory.invalidateTag("a");
+		// entries of tenant "b" are untouched
+		operation.findUser("b", 1);
+		assertEquals(3, loads.get());
+
+		operation.findUser("a", 1);
+		operation.findGroup("a", 1);
+		assertEquals(5, loads.get());
+
+		factory.invalidateTag("c");
+		operation.findUser("a", 1);
+		assertEquals(5, loads.get());
 	}
 
-	public interface ExpireAfterAccess extends ExpensiveOperation {
+	@Test
+	void testThatInvalidateTagSupersedesALoadInFlight()
+		throws InterruptedException, ExecutionException {
+		final var loads = new AtomicInteger();
+		final var read = new CountDownLatch(1);
+		final var resume = new CountDownLatch(1);
+		final var factory = new DefaultCacheFactory();
+		final Tenants operation = factory.newCache(Tenants.class, new Tenants() {
+			@Override
+			public String findUser(final String tenant, final Integer id) {
+				if (loads.incrementAndGet() == 1) {
+					read.countDown();
+					try {
+						resume.await();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
 
-		@CacheConfiguration(name = "ExpireAfterAccess", expireAfterAccessDelay = 100L, recordStats = true)
-		Object expensiveOperation() throws FooException;
+				return tenant + "/" + id;
+			}
 
+			@Override
+			public String findGroup(final String tenant, final Integer id) {
+				return tenant + "/" + id;
+			}
+		}).proxy();
+
+		final var executor = Executors.newSingleThreadExecutor();
+		try {
+			final var load = executor.submit(() -> operation.findUser("a", 1));
+			read.await();
+			factory.invalidateTag("a");
+			resume.countDown();
+			assertEquals("a/1", load.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		// the value read before the invalidation was not cached
+		operation.findUser("a", 1);
+		assertEquals(2, loads.get());
 	}
 
-	public interface ExpireAfterWrite extends ExpensiveOperation {
+	@Test
+	void testSnapshotAndRestore() throws IOException {
+		final var loads = new AtomicInteger();
+		final var snapshots = new Snapshots() {
+			@Override
+			public List<String> find(final Integer id) {
+				loads.incrementAndGet();
 
-		@CacheConfiguration(name = "ExpireAfterWrite", expireAfterWriteDelay = 100L, recordStats = true)
-		Object expensiveOperation() throws FooException;
+				return List.of("#" + id);
+			}
+
+			@Override
+			public String findShortLived(final Integer id) {
+				loads.incrementAndGet();
 
+				return "#" + id;
+			}
+		};
+
+		final var ticker = new ManualTicker();
+		final var controller = new DefaultCacheFactoryBuilder().withTicker(ticker)
+			.build()
+			.newCache(Snapshots.class, snapshots);
+		final Snapshots operation = controller.proxy();
+		operation.find(1);
+		operation.find(2);
+		operation.findShortLived(1);
+		assertEquals(3, loads.get());
+
+		// the short-lived entry has expired, although its timer has not yet fired
+		ticker.advance(100L, TimeUnit.MILLISECONDS);
+		final var out = new ByteArrayOutputStream();
+		controller.snapshot(out);
+
+		final var restored = new DefaultCacheFactory().newCache(Snapshots.class, snapshots);
+		restored.restore(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(2, restored.getCache("Snapshots").map(Cache::size).orElse(0));
+		assertEquals(0, restored.getCache("ShortLived").map(Cache::size).orElse(0));
+
+		final Snapshots restoredOperation = restored.proxy();
+		assertEquals(List.of("#1"), restoredOperation.find(1));
+		assertEquals(List.of("#2"), restoredOperation.find(2));
+		assertEquals(3, loads.get());
+
+		restoredOperation.findShortLived(1);
+		assertEquals(4, loads.get());
 	}
 
-	public interface RefreshAfterWrite extends ExpensiveOperation {
+	@Test
+	void testThatSnapshotsLargerThanABatchAreRestored() throws IOException {
+		final var loads = new AtomicInteger();
+		final Restorable restorable = i -> {
+			loads.incrementAndGet();
 
-		@CacheConfiguration(name = "RefreshAfterWrite", expireAfterWriteDelay = 100L, refreshAfterWriteDelay = 100L, recordStats = true)
-		Object expensiveOperation() throws FooException;
+			return "#" + i;
+		};
+		final var controller = new DefaultCacheFactory().newCache(Restorable.class, restorable);
+		final Restorable operation = controller.proxy();
+		IntStream.range(0, 2500).forEach(operation::apply);
 
+		final var out = new ByteArrayOutputStream();
+		controller.snapshot(out);
+
+		final var restored = new DefaultCacheFactory().newCache(Restorable.class, restorable);
+		restored.restore(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(2500, restored.getCache("Restorable").map(Cache::size).orElse(0));
+
+		assertEquals("#0", restored.proxy().apply(0));
+		assertEquals("#2499", restored.proxy().apply(2499));
+		assertEquals(2500, loads.get());
 	}
 
-	public interface MaxSize extends Function<Integer, Object> {
+	@Test
+	void testOffHeap() {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(OffHeap.class,
+			(OffHeap) id -> {
+				loads.incrementAndGet();
+
+				return List.of("#" + id);
+			});
+
+		final OffHeap operation = controller.proxy();
+		final var value = operation.find(1);
+		final var hit = operation.find(1);
+
+		// each hit is deserialized from off-heap memory
+		assertEquals(value, hit);
+		assertNotSame(value, hit);
+		assertEquals(1, loads.get());
+
+		controller.getCache("OffHeap").ifPresent(Cache::clear);
+		operation.find(1);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void testThatOffHeapValuesKeepTheirClass() {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(Kennel.class,
+			(Kennel) id -> {
+				loads.incrementAndGet();
+
+				return new Dog("Rex", "Collie");
+			});
+
+		final Kennel operation = controller.proxy();
+		operation.find(1);
+		final var hit = operation.find(1);
+
+		assertEquals(new Dog("Rex", "Collie"), hit);
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void testThatUnreadableOffHeapValuesAreLoadedAgain() {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(Labels.class,
+			(Labels) id -> {
+				loads.incrementAndGet();
+
+				return new Label("#" + id);
+			});
+
+		final Labels operation = controller.proxy();
+		operation.find(1);
+
+		// an interface-typed field cannot be deserialized, so the value is loaded again
+		assertEquals("#1", operation.find(1).text());
+		assertEquals(2, loads.get());
+
+		// and is then kept on the heap
+		assertEquals("#1", operation.find(1).text());
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void testThatCollectedValuesAreRemoved() throws InterruptedException {
+		final var controller = new DefaultCacheFactory().newCache(WeakValues.class,
+			(WeakValues) i -> new Object());
+		final WeakValues operation = controller.proxy();
+		operation.apply(0);
+		final var cache = controller.getCache("WeakValues").orElseThrow();
+
+		// every value is weakly reachable once it has been returned; each miss removes the entries
+		// whose values have been collected since
+		for (int i = 1; i < 100 && cache.statistics().collectionCount() == 0; i++) {
+			System.gc();
+			Thread.sleep(10L);
+			operation.apply(i);
+		}
+
+		final var stats = cache.statistics();
+		assertTrue(stats.collectionCount() > 0);
+		assertEquals(0, stats.evictionCount());
+		assertTrue(cache.size() < stats.missCount());
+	}
+
+	@Test
+	void testWeakKeys() throws InterruptedException {
+		final var controller = new DefaultCacheFactory().newCache(WeakKeys.class,
+			(WeakKeys) context -> context.length);
+		final WeakKeys operation = controller.proxy();
+		final var context = new byte[1024];
+		operation.apply(context);
+		operation.apply(context);
+		// an equal argument is a different key
+		operation.apply(new byte[1024]);
+		final var cache = controller.getCache("WeakKeys").orElseThrow();
+		assertEquals(1, cache.statistics().hitCount());
+		assertEquals(2, cache.statistics().missCount());
+
+		// each miss removes the entries whose arguments have been collected since
+		for (int i = 0; i < 100 && cache.statistics().collectionCount() == 0; i++) {
+			System.gc();
+			Thread.sleep(10L);
+			operation.apply(context);
+			operation.apply(new byte[0]);
+		}
+
+		assertTrue(cache.statistics().collectionCount() > 0);
+		assertEquals(1024, operation.apply(context));
+	}
+
+	@Test
+	void testThatBoxedWeakKeysAreRejected() {
+		final BoxedWeakKeys operation = new DefaultCacheFactory().newCache(BoxedWeakKeys.class,
+			(BoxedWeakKeys) id -> id).proxy();
+
+		assertThrows(IllegalArgumentException.class, () -> operation.apply(1));
+	}
+
+	@Test
+	void testManualTicker() throws FooException {
+		final var ticker = new ManualTicker();
+		final var factory = new DefaultCacheFactoryBuilder().withTicker(ticker).build();
+		final var controller = factory.newCache(ExpireAfterWrite.class,
+			new ExpensiveOperationSuccess());
+		final ExpensiveOperation operation = controller.proxy();
+		final var o1 = operation.expensiveOperation();
+
+		// no time passes for the cache until the ticker is advanced
+		ticker.advance(90L, TimeUnit.MILLISECONDS);
+		factory.advanceTimers();
+		assertSame(o1, operation.expensiveOperation());
+
+		// the timing wheel fires a timer within a tick of its deadline
+		ticker.advance(50L, TimeUnit.MILLISECONDS);
+		factory.advanceTimers();
+		assertNotSame(o1, operation.expensiveOperation());
+	}
+
+	@Test
+	void testCoarseTicker() throws FooException, InterruptedException {
+		final var controller = new DefaultCacheFactoryBuilder().withCoarseTicker()
+			.build()
+			.newCache(ExpireAfterWrite.class, new ExpensiveOperationSuccess());
+		final ExpensiveOperation operation = controller.proxy();
+		final var o1 = operation.expensiveOperation();
+		assertSame(o1, operation.expensiveOperation());
+
+		// wait for expiration
+		Thread.sleep(300);
+
+		assertNotSame(o1, operation.expensiveOperation());
+	}
+
+	@Test
+	void testDiskTier() throws IOException {
+		final var directory = Files.createTempDirectory("DiskTier");
+		try {
+			testDiskTier(new DefaultCacheFactoryBuilder().withDiskDirectory(directory),
+				directory.resolve(DiskTier.DIRECTORY));
+		} finally {
+			try (final var paths = Files.walk(directory)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private void testDiskTier(final DefaultCacheFactoryBuilder builder, final Path directory)
+		throws IOException {
+		final var loads = new AtomicInteger();
+		final DiskTier diskTier = id -> {
+			loads.incrementAndGet();
+
+			return List.of("#" + id);
+		};
+		final var controller = builder.build().newCache(DiskTier.class, diskTier);
+		final DiskTier operation = controller.proxy();
+		operation.find(1);
+		operation.find(2);
+		assertEquals(2, loads.get());
+
+		// the evicted entry is read back from disk rather than loaded
+		assertEquals(List.of("#1"), operation.find(1));
+		assertEquals(2, loads.get());
+		controller.getCache("DiskTier").map(Cache::statistics).ifPresent(stats -> {
+			assertEquals(1, stats.diskHitCount());
+			assertEquals(3, stats.missCount());
+		});
+
+		// another instance of the cache cannot open the directory while it is in use
+		final var concurrent = builder.build().newCache(DiskTier.class, diskTier);
+		concurrent.proxy().find(2);
+		assertEquals(3, loads.get());
+		concurrent.close();
+		try (final var paths = Files.list(directory)) {
+			final var names = paths.map(path -> path.getFileName().toString()).sorted().toList();
+			assertEquals(2, names.size());
+			assertEquals(names.get(0) + ".1", names.get(1));
+		}
+
+		// entry 2 was evicted by entry 1 and is read back after a restart
+		controller.close();
+		final var restarted = builder.build().newCache(DiskTier.class, diskTier);
+		assertEquals(List.of("#2"), restarted.proxy().find(2));
+		assertEquals(3, loads.get());
+		restarted.close();
+	}
+
+	@Test
+	void testMaxSize() {
+		final var controller = new DefaultCacheFactory().newCache(MaxSize.class,
+			(Function<Integer, Object>) integer -> new Object());
+
+		final MaxSize operation = controller.proxy();
+		operation.apply(1);
+		operation.apply(2);
+		operation.apply(3);
+
+		controller.getCache("MaxSize").map(Cache::size).ifPresent(size -> assertEquals(1, size));
+	}
+
+	@Test
+	void testThatEntriesWrittenInTheSameTickAreEvictedInInsertionOrder() {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactoryBuilder().withTicker(new ManualTicker())
+			.build()
+			.newCache(SameTick.class, (SameTick) i -> loads.incrementAndGet());
+
+		final SameTick operation = controller.proxy();
+		operation.apply(1);
+		operation.apply(2);
+		operation.apply(3);
+
+		final var cache = controller.getCache("SameTick").orElseThrow();
+		assertEquals(2, cache.size());
+		operation.apply(2);
+		operation.apply(3);
+		assertEquals(3, loads.get());
+		operation.apply(1);
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	void testThatEvictionWithinTheOvershootIsDeferred()
+		throws InterruptedException, ExecutionException {
+		final var executor = Executors.newSingleThreadScheduledExecutor();
+		final var controller = new DefaultCacheFactory(executor).newCache(Overshoot.class,
+			(Function<Integer, Object>) integer -> new Object());
+		// maintenance is queued behind the latch
+		final var latch = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				latch.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		final Overshoot operation = controller.proxy();
+		IntStream.range(0, 5).forEach(operation::apply);
+		final var cache = controller.getCache("Overshoot").orElseThrow();
+		assertEquals(5, cache.size());
+
+		latch.countDown();
+		executor.submit(() -> {
+		}).get();
+		assertEquals(2, cache.size());
+		executor.shutdown();
+	}
+
+	@Test
+	void testThatEvictionIsDeferredByDefault() throws InterruptedException, ExecutionException {
+		final var executor = Executors.newSingleThreadScheduledExecutor();
+		final var controller = new DefaultCacheFactory(executor).newCache(DefaultOvershoot.class,
+			(Function<Integer, Object>) integer -> new Object());
+		// maintenance is queued behind the latch
+		final var latch = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				latch.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		final DefaultOvershoot operation = controller.proxy();
+		IntStream.range(0, 34).forEach(operation::apply);
+		final var cache = controller.getCache("DefaultOvershoot").orElseThrow();
+		// a sixteenth of the maximum size is left to maintenance
+		assertEquals(34, cache.size());
+
+		latch.countDown();
+		executor.submit(() -> {
+		}).get();
+		assertEquals(32, cache.size());
+		executor.shutdown();
+	}
+
+	@Test
+	void testThatAFrequentlyUsedEntrySurvivesAScan() {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(FrequencyAware.class,
+			(Function<Integer, Object>) i -> {
+				loads.incrementAndGet();
+
+				return i;
+			});
+
+		final FrequencyAware operation = controller.proxy();
+		for (int i = 0; i < 10; i++) {
+			operation.apply(-1);
+		}
+		// the frequency of the hot entry, recorded while the cache warmed up, must be kept
+		IntStream.range(0, 5000).forEach(operation::apply);
+		assertEquals(5001, loads.get());
+
+		operation.apply(-1);
+		assertEquals(5001, loads.get());
+	}
+
+	@Test
+	void testThatAnEntryReplacedDuringEvictionIsKept() {
+		final var executor = Executors.newSingleThreadScheduledExecutor();
+		// maintenance is queued behind the latch, so the writer evicts
+		final var latch = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				latch.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		final var loads = new AtomicInteger();
+		final Replaced operation = new DefaultCacheFactory(executor).newCache(Replaced.class,
+			new Replaced() {
+				@Override
+				public String find(final Integer id) {
+					loads.incrementAndGet();
+
+					return "#" + id;
+				}
+
+				@Override
+				public String update(final Integer id, final String name) {
+					return name;
+				}
+			}).proxy();
+		ReplacingEvictionStrategy.replace = value -> {
+			final var id = Integer.valueOf(((String) value).substring(1));
+			operation.update(id, "#" + id + "'");
+
+			return id;
+		};
+
+		try {
+			operation.find(1);
+			operation.find(2);
+			operation.find(3);
+			final var replaced = ReplacingEvictionStrategy.replaced;
+			assertNotNull(replaced);
+
+			// the replacement, rather than the entry that was chosen for eviction, is still cached
+			assertEquals("#" + replaced + "'", operation.find(replaced));
+			assertEquals(3, loads.get());
+		} finally {
+			latch.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testThatWritersDoNotWaitForMaintenanceInProgress() throws Exception {
+		final var controller = new DefaultCacheFactory().newCache(Blocked.class,
+			(Blocked) i -> "#" + i);
+		final Blocked operation = controller.proxy();
+		final var writer = Executors.newSingleThreadExecutor();
+		try {
+			// the maintenance task that the third entry schedules waits in the eviction strategy
+			IntStream.range(0, 3).forEach(operation::find);
+			assertTrue(BlockingEvictionStrategy.entered.await(5, TimeUnit.SECONDS));
+
+			// the fifth entry exceeds the overshoot but leaves the eviction to the task
+			writer.submit(() -> IntStream.range(3, 5).forEach(operation::find))
+				.get(5, TimeUnit.SECONDS);
+		} finally {
+			BlockingEvictionStrategy.released.countDown();
+			writer.shutdown();
+		}
+	}
+
+	@Test
+	void testThatEvictionHonorsTheWeightBudget() {
+		final var controller = new DefaultCacheFactory().newCache(Weighted.class,
+			(Function<Integer, Object>) "x"::repeat);
+
+		final Weighted operation = controller.proxy();
+		final var four = operation.apply(4);
+		operation.apply(3);
+		assertSame(four, operation.apply(4));
+		operation.apply(5);
+
+		// the least recently used entry, of weight 3, makes way for the entry of weight 5
+		final var cache = controller.getCache("Weighted").orElseThrow();
+		assertEquals(9L, cache.weightedSize());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testThatCachesShareTheFactoryBudget() {
+		final var factory = new DefaultCacheFactory(Executors.newSingleThreadScheduledExecutor(),
+			4L);
+		final var controller = factory.newCache(Budgeted.class, new Budgeted() {
+
+			@Override
+			public Object apply(final Integer i) {
+				return new Object();
+			}
+
+			@Override
+			public Object other(final Integer i) {
+				return new Object();
+			}
+
+		});
+
+		final Budgeted operation = controller.proxy();
+		IntStream.range(0, 10).forEach(operation::apply);
+		IntStream.range(0, 10).forEach(operation::other);
+		// the first cache's allowance shrank when the second joined; a write enforces it
+		operation.apply(10);
+
+		final var caches = controller.getCaches("Budgeted");
+		assertEquals(2, caches.size());
+		caches.forEach(cache -> assertEquals(2, cache.size()));
+	}
+
+	@Test
+	void testThatInFlightFuturesAreShared() throws InterruptedException, ExecutionException {
+		final var loads = new AtomicInteger();
+		final var future = new CompletableFuture<Object>();
+		final var controller = new DefaultCacheFactory().newCache(Async.class,
+			(Async) i -> {
+				loads.incrementAndGet();
+
+				return future;
+			});
+
+		final Async operation = controller.proxy();
+		final var first = operation.load(1);
+		final var second = operation.load(1);
+		assertEquals(1, loads.get());
+
+		final var value = new Object();
+		future.complete(value);
+		assertSame(value, first.get());
+		assertSame(value, second.get());
+	}
+
+	@Test
+	void testThatFailedFuturesAreDiscarded() throws InterruptedException, ExecutionException {
+		final var loads = new AtomicInteger();
+		final var controller = new DefaultCacheFactory().newCache(Async.class,
+			(Async) i -> loads.incrementAndGet() == 1
+				? CompletableFuture.failedFuture(new IllegalStateException())
+				: CompletableFuture.completedFuture(i));
+
+		final Async operation = controller.proxy();
+		assertThrows(ExecutionException.class, () -> operation.load(1).get());
+		assertEquals(1, operation.load(1).get());
+		assertEquals(1, operation.load(1).get());
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void testThatAsyncExpirationStartsOnCompletion() {
+		final var ticker = new ManualTicker();
+		final var factory = new DefaultCacheFactoryBuilder().withTicker(ticker).build();
+		final var loads = new AtomicInteger();
+		final var future = new CompletableFuture<Object>();
+		final var controller = factory.newCache(Async.class,
+			(Async) i -> {
+				loads.incrementAndGet();
+
+				return future;
+			});
+
+		final Async operation = controller.proxy();
+		operation.load(1);
+		ticker.advance(150L, TimeUnit.MILLISECONDS);
+		factory.advanceTimers();
+		future.complete(new Object());
+
+		operation.load(1);
+		assertEquals(1, loads.get());
+
+		ticker.advance(150L, TimeUnit.MILLISECONDS);
+		factory.advanceTimers();
+		operation.load(1);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void testThatAsyncRefreshIsMeasuredFromCompletion() {
+		final var ticker = new ManualTicker();
+		final var loads = new AtomicInteger();
+		final var future = new CompletableFuture<String>();
+		final var controller = new DefaultCacheFactoryBuilder().withTicker(ticker)
+			.withRefreshExecutor(Runnable::run)
+			.build()
+			.newCache(AsyncRefresh.class, (AsyncRefresh) i -> loads.incrementAndGet() == 1
+				? future : CompletableFuture.completedFuture("#" + i));
+
+		final AsyncRefresh operation = controller.proxy();
+		operation.load(1);
+		ticker.advance(150L, TimeUnit.MILLISECONDS);
+		future.complete("#1");
+
+		// the entry is as old as its result rather than its future
+		operation.load(1);
+		assertEquals(1, loads.get());
+
+		ticker.advance(150L, TimeUnit.MILLISECONDS);
+		operation.load(1);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void testThatAsyncValuesAreWeighedOnCompletion() {
+		final var future = new CompletableFuture<String>();
+		final var controller = new DefaultCacheFactory().newCache(AsyncWeighted.class,
+			(AsyncWeighted) i -> future);
+
+		final AsyncWeighted operation = controller.proxy();
+		operation.load(1);
+		final var cache = controller.getCache("AsyncWeighted").orElseThrow();
+		assertEquals(1L, cache.weightedSize());
+
+		future.complete("abcd");
+		assertEquals(4L, cache.weightedSize());
+	}
+
+	@Test
+	void testLeastRecentlyUsed() {
+		final var controller = new DefaultCacheFactory().newCache(LeastRecentlyUsed.class,
+			(Function<Integer, Object>) integer -> new Object());
+
+		final LeastRecentlyUsed operation = controller.proxy();
+		final var o1 = operation.apply(1);
+		operation.apply(2);
+		assertSame(o1, operation.apply(1));
+		operation.apply(3);
+
+		controller.getCache("LeastRecentlyUsed").map(Cache::size)
+			.ifPresent(size -> assertEquals(2, size));
+		assertSame(o1, operation.apply(1));
+	}
+
+	@Test
+	void testThatConcurrentMissesShareOneLoad() throws InterruptedException, ExecutionException {
+		final var loads = new AtomicInteger();
+		final var latch = new CountDownLatch(1);
+		final var controller = new DefaultCacheFactory().newCache(SingleFlight.class,
+			(Function<Integer, Object>) i -> {
+				loads.incrementAndGet();
+				try {
+					latch.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				return new Object();
+			});
+
+		final SingleFlight operation = controller.proxy();
+		final List<Thread> threads = new CopyOnWriteArrayList<>();
+		final var executor = Executors.newFixedThreadPool(4, runnable -> {
+			final var thread = new Thread(runnable);
+			threads.add(thread);
+
+			return thread;
+		});
+		try {
+			final var futures = IntStream.range(0, 4)
+				.mapToObj(i -> executor.submit(() -> operation.apply(1)))
+				.toList();
+			// one thread waits for the latch and the others for its load
+			while (threads.size() < 4 || !threads.stream()
+				.allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+				Thread.onSpinWait();
+			}
+			latch.countDown();
+
+			final var o1 = futures.get(0).get();
+			for (final var future : futures) {
+				assertSame(o1, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(1, loads.get());
+		controller.getCache("SingleFlight").map(Cache::statistics).ifPresent(stats -> {
+			assertEquals(1, stats.loadSuccessCount());
+			assertEquals(3, stats.loadWaiterCount());
+			assertEquals(3, stats.maximumLoadWaiters());
+		});
+	}
+
+	@Test
+	void testSoftValues() throws FooException {
+		final var controller = new DefaultCacheFactory().newCache(SoftValues.class,
+			new ExpensiveOperationSuccess());
+
+		final ExpensiveOperation operation = controller.proxy();
+		final var o1 = operation.expensiveOperation();
+		assertNotNull(o1);
+		final var o2 = operation.expensiveOperation();
+		assertSame(o1, o2);
+	}
+
+	public interface ExpensiveOperation {
+
+		Object expensiveOperation() throws FooException;
+
+	}
+
+	public static class ExpensiveOperationSuccess implements ExpensiveOperation {
+
+		public Object expensiveOperation() {
+			return new Object();
+		}
+
+	}
+
+	public static class ExpensiveOperationFailure implements ExpensiveOperation {
+
+		public Object expensiveOperation() throws FooException {
+			throw new FooException();
+		}
+
+	}
+
+	public interface ExpireAfterAccess extends ExpensiveOperation {
+
+		@CacheConfiguration(name = "ExpireAfterAccess", expireAfterAccessDelay = 100L, recordStats = true)
+		Object expensiveOperation() throws FooException;
+
+	}
+
+	public interface ExpireAfterWrite extends ExpensiveOperation {
+
+		@CacheConfiguration(name = "ExpireAfterWrite", expireAfterWriteDelay = 100L, recordStats = true)
+		Object expensiveOperation() throws FooException;
+
+	}
+
+	public interface RefreshAfterWrite extends ExpensiveOperation {
+
+		@CacheConfiguration(name = "RefreshAfterWrite", refreshAfterWriteDelay = 100L, recordStats = true)
+		Object expensiveOperation() throws FooException;
+
+	}
+
+	public interface ExpireEarly extends ExpensiveOperation {
+
+		@CacheConfiguration(name = "ExpireEarly", expireAfterWriteDelay = 1L, expireAfterWriteTimeUnit = TimeUnit.MINUTES, earlyExpirationBeta = 1_000_000D)
+		Object expensiveOperation();
+
+	}
+
+	public interface Token extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "Token", expireAfterWriteHook = "validity")
+		@Override
+		Object apply(Integer millis);
+
+		default Duration validity(final Object millis) {
+			return Duration.ofMillis((Integer) millis);
+		}
+
+	}
+
+	public interface ResultExpiry extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "ResultExpiry", expiry = MillisExpiry.class)
+		@Override
+		Object apply(Integer millis);
+
+	}
+
+	public static class MillisExpiry implements Expiry {
+
+		@Override
+		public Duration expireAfterWrite(final Object[] args, final Object value) {
+			return Duration.ofMillis((Integer) value);
+		}
+
+	}
+
+	public interface BulkLoad {
+
+		@CacheConfiguration(name = "BulkLoad", bulk = true, recordStats = true)
+		Map<Integer, String> findAll(Collection<Integer> ids);
+
+	}
+
+	public interface InvalidBulkLoad {
+
+		@CacheConfiguration(name = "InvalidBulkLoad", bulk = true)
+		Collection<Integer> findAll(Collection<Integer> ids);
+
+	}
+
+	public interface Repository {
+
+		@CacheConfiguration(name = "Users", recordStats = true)
+		String find(Integer id);
+
+		@CacheEvict(value = "Users", keys = 0)
+		void rename(Integer id, String name);
+
+		@CachePut(value = "Users", keys = 0)
+		String update(Integer id, String name);
+
+		@CacheEvict(value = "Users", allEntries = true)
+		void reset();
+
+	}
+
+	public interface Catalog {
+
+		@CacheConfiguration(name = "Catalog")
+		String findName(Integer id);
+
+		@CacheConfiguration(name = "Catalog")
+		Integer findSize(Integer id);
+
+		@CacheConfiguration(name = "Catalog")
+		Long findCount(Long id);
+
+		@CachePut(value = "Catalog", keys = 0)
+		String rename(Integer id, String name);
+
+	}
+
+	public interface VoidPut {
+
+		@CachePut("Catalog")
+		void touch(Integer id);
+
+	}
+
+	private record Users(Map<Integer, String> names) implements Repository {
+
+		@Override
+		public String find(final Integer id) {
+			return names.get(id);
+		}
+
+		@Override
+		public void rename(final Integer id, final String name) {
+			names.put(id, name);
+		}
+
+		@Override
+		public String update(final Integer id, final String name) {
+			names.put(id, name);
+
+			return name;
+		}
+
+		@Override
+		public void reset() {
+		}
+
+	}
+
+	public interface Tenants {
+
+		@CacheConfiguration(name = "TenantUsers", tagger = TenantTagger.class)
+		String findUser(String tenant, Integer id);
+
+		@CacheConfiguration(name = "TenantGroups", tagger = TenantTagger.class)
+		String findGroup(String tenant, Integer id);
+
+	}
+
+	public static final class TenantTagger implements Tagger {
+
+		@Override
+		public Collection<?> tags(final Object[] args, final Object value) {
+			return List.of(args[0]);
+		}
+
+	}
+
+	public interface Snapshots {
+
+		@CacheConfiguration(name = "Snapshots", expireAfterWriteDelay = 10_000L)
+		List<String> find(Integer id);
+
+		@CacheConfiguration(name = "ShortLived", expireAfterWriteDelay = 50L)
+		String findShortLived(Integer id);
+
+	}
+
+	public interface OffHeap {
+
+		@CacheConfiguration(name = "OffHeap", offHeapCapacity = 1L << 20)
+		List<String> find(Integer id);
+
+	}
+
+	public interface Kennel {
+
+		@CacheConfiguration(name = "Kennel", offHeapCapacity = 1L << 20)
+		Animal find(Integer id);
+
+	}
+
+	public static class Animal {
+
+		final String name;
+
+		Animal(final String name) {
+			this.name = name;
+		}
+
+	}
+
+	public static class Dog extends Animal {
+
+		final String breed;
+
+		Dog(final String name, final String breed) {
+			super(name);
+			this.breed = breed;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof final Dog dog && name.equals(dog.name) && breed.equals(dog.breed);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(name, breed);
+		}
+
+	}
+
+	public interface Labels {
+
+		@CacheConfiguration(name = "Labels", offHeapCapacity = 1L << 20)
+		Label find(Integer id);
+
+	}
+
+	public record Label(CharSequence text) {
+
+	}
+
+	public interface WeakValues extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "WeakValues", weakValues = true, recordStats = true)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface WeakKeys extends Function<byte[], Integer> {
+
+		@CacheConfiguration(name = "WeakKeys", weakKeys = true, recordStats = true)
+		@Override
+		Integer apply(byte[] context);
+
+	}
+
+	public interface BoxedWeakKeys {
+
+		@CacheConfiguration(name = "BoxedWeakKeys", weakKeys = true)
+		Integer apply(Integer id);
+
+	}
+
+	public interface DiskTier {
+
+		String DIRECTORY = "DiskTier";
+
+		@CacheConfiguration(name = "DiskTier", maximumSize = 1, maximumSizeOvershoot = 0, diskCapacity = 1L << 20, diskDirectory = DIRECTORY, recordStats = true)
+		List<String> find(Integer id);
+
+	}
+
+	public interface NegativeCache {
+
+		@CacheConfiguration(name = "NegativeCache", negativeCacheDelay = 100L, negativeCacheRuntimeExceptions = IllegalStateException.class, recordStats = true)
+		Object load(Integer i) throws FooException;
+
+	}
+
+	public interface StaleIfError extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "StaleIfError", expireAfterWriteDelay = 50L, staleIfErrorDelay = 100L, recordStats = true)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface Restorable {
+
+		@CacheConfiguration(name = "Restorable")
+		String apply(Integer i);
+
+	}
+
+	public interface MaxSize extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "MaxSize", expireAfterWriteDelay = Long.MAX_VALUE, maximumSize = 1, maximumSizeOvershoot = 0, recordStats = true)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface SameTick extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "SameTick", maximumSize = 2, maximumSizeOvershoot = 0)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface Overshoot extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "Overshoot", maximumSize = 2, maximumSizeOvershoot = 10)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface DefaultOvershoot extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "DefaultOvershoot", maximumSize = 32)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface FrequencyAware extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "FrequencyAware", maximumSize = 2000, maximumSizeOvershoot = 0, evictionStrategy = WindowTinyLfuEvictionStrategy.class)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface Replaced {
+
+		@CacheConfiguration(name = "Replaced", maximumSize = 1, maximumSizeOvershoot = 1, evictionStrategy = ReplacingEvictionStrategy.class)
+		String find(Integer id);
+
+		@CachePut(value = "Replaced", keys = 0)
+		String update(Integer id, String name);
+
+	}
+
+	/**
+	 * Replaces the first entry that it would evict, through the proxy, before it removes it.
+	 */
+	public static class ReplacingEvictionStrategy implements EvictionStrategy {
+
+		private static Function<Object, Integer> replace;
+
+		private static Integer replaced;
+
+		@Override
+		public void evict(final Collection<CacheEntry> entries, final int limit) {
+			final var replace = ReplacingEvictionStrategy.replace;
+			if (replace == null || entries.size() <= limit) {
+				return;
+			}
+
+			ReplacingEvictionStrategy.replace = null;
+			final var iterator = entries.iterator();
+			replaced = replace.apply(iterator.next().value());
+			iterator.remove();
+		}
+
+	}
+
+	public interface Blocked {
+
+		@CacheConfiguration(name = "Blocked", maximumSize = 2, maximumSizeOvershoot = 2, evictionStrategy = BlockingEvictionStrategy.class)
+		String find(Integer id);
+
+	}
+
+	/**
+	 * Waits to be released the first time that it is asked to evict.
+	 */
+	public static class BlockingEvictionStrategy implements EvictionStrategy {
+
+		private static final CountDownLatch entered = new CountDownLatch(1);
+
+		private static final CountDownLatch released = new CountDownLatch(1);
+
+		@Override
+		public void evict(final Collection<CacheEntry> entries, final int limit) {
+			if (entered.getCount() > 0) {
+				entered.countDown();
+				try {
+					released.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			final var iterator = entries.iterator();
+			while (entries.size() > limit && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+
+	}
+
+	public interface LeastRecentlyUsed extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "LeastRecentlyUsed", maximumSize = 2, maximumSizeOvershoot = 0, evictionStrategy = LeastRecentlyUsedEvictionStrategy.class)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public interface Weighted extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "Weighted", maximumWeight = 10L, weigher = LengthWeigher.class, evictionStrategy = LeastRecentlyUsedEvictionStrategy.class)
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public static class LengthWeigher implements Weigher {
+
+		@Override
+		public int weigh(final Object[] args, final Object value) {
+			return ((String) value).length();
+		}
+
+	}
+
+	public interface Budgeted extends Function<Integer, Object> {
+
+		@CacheConfiguration(name = "Budgeted", evictionStrategy = LeastRecentlyUsedEvictionStrategy.class)
+		@Override
+		Object apply(Integer i);
+
+		@CacheConfiguration(name = "Budgeted", evictionStrategy = LeastRecentlyUsedEvictionStrategy.class)
+		Object other(Integer i);
+
+	}
+
+	public interface Async {
+
+		@CacheConfiguration(name = "Async", expireAfterWriteDelay = 100L, recordStats = true)
+		CompletableFuture<Object> load(Integer i);
+
+	}
+
+	public interface AsyncRefresh {
+
+		@CacheConfiguration(name = "AsyncRefresh", refreshAfterWriteDelay = 100L)
+		CompletableFuture<String> load(Integer i);
+
+	}
+
+	public interface AsyncWeighted {
+
+		@CacheConfiguration(name = "AsyncWeighted", maximumWeight = 10L, weigher = LengthWeigher.class)
+		CompletableFuture<String> load(Integer i);
+
+	}
+
+	public interface SingleFlight extends Function<Integer, Object> {
 
-		@CacheConfiguration(name = "MaxSize", expireAfterWriteDelay = Long.MAX_VALUE, maximumSize = 1, recordStats = true)
+		@CacheConfiguration(name = "SingleFlight", recordStats = true)
 		@Override
 		Object apply(Integer i);
 
@@ -0,0 +1,188 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link DiskStore}.
+ */
+class DiskStoreTest {
+
+	private static final long CAPACITY = 64 << 10;
+
+	@Test
+	void testPutGetAndRemove() throws IOException {
+		final var store = new DiskStore(newDirectory(), CAPACITY, new IntegerCodec());
+		store.put(key(1), bytes("one"), -1L);
+		store.put(key(2), bytes("two"), -1L);
+		store.put(key(1), bytes("uno"), -1L);
+
+		assertEquals("uno", string(store.get(key(1))));
+		assertEquals("two", string(store.get(key(2))));
+
+		store.remove(key(2));
+		assertNull(store.get(key(2)));
+		assertEquals(1, store.size());
+	}
+
+	@Test
+	void testThatExpiredValuesAreNotServed() throws IOException {
+		final var store = new DiskStore(newDirectory(), CAPACITY, new IntegerCodec());
+		store.put(key(1), bytes("one"), System.currentTimeMillis() - 1);
+
+		assertNull(store.get(key(1)));
+	}
+
+	@Test
+	void testThatTheStoreSurvivesARestart() throws IOException {
+		final var directory = newDirectory();
+		final var store = new DiskStore(directory, CAPACITY, new IntegerCodec());
+		store.put(key(1), bytes("one"), -1L);
+		store.put(key(2), bytes("two"), -1L);
+		store.put(key(1), bytes("uno"), -1L);
+		store.remove(key(2));
+		store.close();
+
+		final var reopened = new DiskStore(directory, CAPACITY, new IntegerCodec());
+		assertEquals("uno", string(reopened.get(key(1))));
+		assertNull(reopened.get(key(2)));
+
+		// appending resumes after the last record
+		reopened.put(key(3), bytes("three"), -1L);
+		assertEquals("uno", string(reopened.get(key(1))));
+		assertEquals("three", string(reopened.get(key(3))));
+	}
+
+	@Test
+	void testThatADirectoryIsOpenedByOneStoreAtATime() throws IOException {
+		final var directory = newDirectory();
+		final var store = new DiskStore(directory, CAPACITY, new IntegerCodec());
+		store.put(key(1), bytes("one"), -1L);
+		assertThrows(IllegalStateException.class,
+			() -> new DiskStore(directory, CAPACITY, new IntegerCodec()));
+
+		store.close();
+		// a closed store writes nothing more
+		store.put(key(2), bytes("two"), -1L);
+		assertNull(store.get(key(2)));
+
+		final var reopened = new DiskStore(directory, CAPACITY, new IntegerCodec());
+		assertEquals("one", string(reopened.get(key(1))));
+	}
+
+	@Test
+	void testThatGarbageIsCompacted() throws IOException {
+		final var store = new DiskStore(newDirectory(), CAPACITY, new IntegerCodec());
+		final var value = new byte[1000];
+		store.put(key(-1), bytes("live"), -1L);
+		for (int i = 0; i < 1000; i++) {
+			store.put(key(i % 10), value, -1L);
+		}
+
+		// the live entries survive however many times the segments are rewritten
+		assertEquals("live", string(store.get(key(-1))));
+		for (int i = 0; i < 10; i++) {
+			assertNotNull(store.get(key(i)));
+		}
+		assertTrue(store.diskSize() <= CAPACITY + CAPACITY / 4);
+	}
+
+	@Test
+	void testThatTheOldestEntriesAreDiscardedWhenFull() throws IOException {
+		final var store = new DiskStore(newDirectory(), CAPACITY, new IntegerCodec());
+		final var value = new byte[1000];
+		for (int i = 0; i < 1000; i++) {
+			store.put(key(i), value, -1L);
+		}
+
+		assertNull(store.get(key(0)));
+		assertNotNull(store.get(key(999)));
+		assertTrue(store.size() < 1000);
+		assertTrue(store.diskSize() <= CAPACITY + CAPACITY / 4);
+	}
+
+	@Test
+	void testThatARecordIsWrittenAfterCompactionFillsTheNewSegment() throws IOException {
+		final var store = new DiskStore(newDirectory(), CAPACITY, new IntegerCodec());
+		// live records that compaction copies to the new segment, leaving it nearly full
+		for (int i = 0; i < 15; i++) {
+			store.put(key(i), new byte[1000], -1L);
+		}
+		for (int i = 0; i < 100; i++) {
+			final var value = new byte[1000];
+			value[0] = (byte) i;
+			store.put(key(100), value, -1L);
+
+			final var stored = store.get(key(100));
+			assertNotNull(stored);
+			assertEquals((byte) i, stored.value().get(0));
+		}
+
+		for (int i = 0; i < 15; i++) {
+			assertNotNull(store.get(key(i)));
+		}
+	}
+
+	private static Path newDirectory() throws IOException {
+		final var directory = Files.createTempDirectory("DiskStoreTest");
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(directory)));
+
+		return directory;
+	}
+
+	private static void delete(final Path directory) {
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		} catch (final IOException e) {
+			// best effort
+		}
+	}
+
+	private static CacheKey key(final int i) {
+		return CacheKey.of(method(), new Object[]{i});
+	}
+
+	private static Method method() {
+		try {
+			return Integer.class.getMethod("valueOf", int.class);
+		} catch (final NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] bytes(final String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(final DiskStore.Value value) {
+		return StandardCharsets.UTF_8.decode(value.value()).toString();
+	}
+
+	private static final class IntegerCodec implements DiskStore.KeyCodec {
+
+		@Override
+		public byte[] encode(final CacheKey key) {
+			return ByteBuffer.allocate(Integer.BYTES).putInt((Integer) key.args()[0]).array();
+		}
+
+		@Override
+		public CacheKey decode(final ByteBuffer buffer) {
+			return key(buffer.getInt());
+		}
+
+	}
+
+}
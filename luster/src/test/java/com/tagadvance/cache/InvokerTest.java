@@ -0,0 +1,66 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.tagadvance.reflection.ReflectionException;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Invoker}.
+ */
+class InvokerTest {
+
+	@Test
+	void testThatBridgeMethodsAreIgnored() throws Exception {
+		final var method = Square.class.getMethod("apply", Integer.class);
+		final var invoker = Invoker.resolve(method, new SquareImpl());
+
+		assertEquals(9, invoker.invoke(new Object[]{3}));
+	}
+
+	@Test
+	void testThatAmbiguousMethodsAreRejected() throws Exception {
+		final var method = Overloaded.class.getMethod("apply", Integer.class);
+
+		assertThrows(ReflectionException.class,
+			() -> Invoker.resolve(method, new OverloadedImpl()));
+	}
+
+	public interface Square extends Function<Integer, Object> {
+
+		@Override
+		Object apply(Integer i);
+
+	}
+
+	public static final class SquareImpl implements Square {
+
+		@Override
+		public Object apply(final Integer i) {
+			return i * i;
+		}
+
+	}
+
+	public interface Overloaded {
+
+		Object apply(Integer i);
+
+	}
+
+	public static final class OverloadedImpl implements Overloaded {
+
+		@Override
+		public Object apply(final Integer i) {
+			return i;
+		}
+
+		public Object apply(final Number n) {
+			return n;
+		}
+
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LeastRecentlyUsedEvictionStrategy}.
+ */
+class LeastRecentlyUsedEvictionStrategyTest {
+
+	@Test
+	void testThatLeastRecentlyUsedEntriesAreEvictedFirst() throws Exception {
+		final var strategy = new LeastRecentlyUsedEvictionStrategy();
+		final List<CacheEntry> entries = new ArrayList<>();
+		final var first = newEntry(1);
+		final var second = newEntry(2);
+		final var third = newEntry(3);
+		for (final var entry : List.of(first, second, third)) {
+			entries.add(entry);
+			strategy.onInsert(entry);
+		}
+
+		strategy.onAccess(first);
+		strategy.evict(entries, 2);
+
+		assertEquals(2, entries.size());
+		assertTrue(entries.contains(first));
+		assertFalse(entries.contains(second));
+		assertTrue(entries.contains(third));
+	}
+
+	@Test
+	void testThatRemovedEntriesAreNotEvicted() throws Exception {
+		final var strategy = new LeastRecentlyUsedEvictionStrategy();
+		final List<CacheEntry> entries = new ArrayList<>();
+		final var first = newEntry(1);
+		final var second = newEntry(2);
+		for (final var entry : List.of(first, second)) {
+			entries.add(entry);
+			strategy.onInsert(entry);
+		}
+
+		strategy.onRemove(first);
+		strategy.evict(entries, 1);
+
+		assertTrue(entries.contains(first));
+		assertFalse(entries.contains(second));
+	}
+
+	private static CacheEntry newEntry(final int i) throws NoSuchMethodException {
+		final var method = Integer.class.getMethod("valueOf", int.class);
+		final var key = CacheKey.of(method, new Object[]{i});
+
+		return new DefaultCacheEntry(key, i);
+	}
+
+}
@@ -5,7 +5,6 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -21,9 +20,9 @@ class OldestFirstEvictionStrategyTest {
 		final int limit = 10;
 		final var expectedValue = "epoch";
 
-		final var oldestEntry = newEntry(Instant.EPOCH, expectedValue);
+		final var oldestEntry = newEntry(0L, expectedValue);
 		final List<CacheEntry> entries = IntStream.range(0, limit)
-			.mapToObj(i -> newEntry(Instant.now(), expectedValue))
+			.mapToObj(i -> newEntry(i + 1L, expectedValue))
 			.collect(Collectors.toList());
 		entries.add(0, oldestEntry);
 		entries.add(oldestEntry);
@@ -31,12 +30,12 @@ class OldestFirstEvictionStrategyTest {
 		new OldestFirstEvictionStrategy().evict(entries, limit);
 
 		assertEquals(limit, entries.size());
-		assertTrue(entries.stream().noneMatch(e -> e.creationTime().equals(Instant.EPOCH)));
+		assertTrue(entries.stream().noneMatch(e -> e.writeTime() == 0L));
 	}
 
-	private static CacheEntry newEntry(final Instant creationTime, final Object value) {
+	private static CacheEntry newEntry(final long writeTime, final Object value) {
 		final var entry = mock(CacheEntry.class);
-		when(entry.creationTime()).thenReturn(creationTime);
+		when(entry.writeTime()).thenReturn(writeTime);
 		when(entry.value()).thenReturn(value);
 
 		return entry;
@@ -0,0 +1,149 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SharedBudget}.
+ */
+class SharedBudgetTest {
+
+	@Test
+	void testThatTheBudgetIsDividedEvenly() {
+		final var budget = new SharedBudget(100);
+		final var a = new Member(0, Long.MAX_VALUE);
+		final var b = new Member(0, Long.MAX_VALUE);
+		budget.register(a);
+		assertEquals(100L, a.allowance());
+
+		budget.register(b);
+		assertEquals(50L, a.allowance());
+		assertEquals(50L, b.allowance());
+	}
+
+	@Test
+	void testThatReservationsAndCapacitiesAreHonored() {
+		final var budget = new SharedBudget(100);
+		final var reserved = new Member(60, Long.MAX_VALUE);
+		final var capped = new Member(0, 10);
+		final var other = new Member(0, Long.MAX_VALUE);
+		budget.register(reserved);
+		budget.register(capped);
+		budget.register(other);
+
+		// the newest member's share is taken from the others above their reservations
+		assertEquals(7L, capped.allowance());
+		assertEquals(78L, reserved.allowance());
+		assertEquals(15L, other.allowance());
+	}
+
+	@Test
+	void testThatJoiningDoesNotUndoRebalancing() {
+		final var budget = new SharedBudget(128);
+		final var a = new Member(0, Long.MAX_VALUE);
+		final var b = new Member(0, Long.MAX_VALUE);
+		budget.register(a);
+		budget.register(b);
+		for (int i = 0; i < 8; i++) {
+			a.hits = 10;
+			budget.rebalance();
+		}
+		assertEquals(80L, a.allowance());
+		assertEquals(48L, b.allowance());
+
+		final var c = new Member(0, Long.MAX_VALUE);
+		budget.register(c);
+
+		assertEquals(43L, c.allowance());
+		assertEquals(53L, a.allowance());
+		assertEquals(32L, b.allowance());
+	}
+
+	@Test
+	void testThatRebalancingFavorsTheGreatestBenefit() {
+		final var budget = new SharedBudget(128);
+		final var a = new Member(0, Long.MAX_VALUE);
+		final var b = new Member(32, Long.MAX_VALUE);
+		budget.register(a);
+		budget.register(b);
+
+		for (int i = 0; i < 100; i++) {
+			a.hits = 10;
+			budget.rebalance();
+		}
+
+		assertEquals(96L, a.allowance());
+		assertEquals(32L, b.allowance());
+	}
+
+	@Test
+	void testThatCollectedMembersReturnTheirAllowance() throws InterruptedException {
+		final var budget = new SharedBudget(128);
+		final var b = new Member(0, Long.MAX_VALUE);
+		// the first member can neither grow nor donate, and is not referenced by the test
+		budget.register(new Member(64, 64));
+		budget.register(b);
+		assertEquals(64L, b.allowance());
+
+		for (int i = 0; i < 100 && b.allowance() == 64L; i++) {
+			System.gc();
+			Thread.sleep(10L);
+			b.hits = 10;
+			budget.rebalance();
+		}
+
+		assertEquals(66L, b.allowance());
+	}
+
+	private static final class Member implements SharedBudget.Member {
+
+		private final long reservedWeight;
+
+		private final long capacity;
+
+		private long allowance;
+
+		private long hits;
+
+		private Member(final long reservedWeight, final long capacity) {
+			this.reservedWeight = reservedWeight;
+			this.capacity = capacity;
+		}
+
+		@Override
+		public long reservedWeight() {
+			return reservedWeight;
+		}
+
+		@Override
+		public long capacity() {
+			return capacity;
+		}
+
+		@Override
+		public long allowance() {
+			return allowance;
+		}
+
+		@Override
+		public void allowance(final long allowance) {
+			this.allowance = allowance;
+		}
+
+		@Override
+		public long averageWeight() {
+			return 1L;
+		}
+
+		@Override
+		public long drainEvictionHistoryHits() {
+			final var hits = this.hits;
+			this.hits = 0;
+
+			return hits;
+		}
+
+	}
+
+}
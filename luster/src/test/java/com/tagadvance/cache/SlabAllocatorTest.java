@@ -0,0 +1,55 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SlabAllocator}.
+ */
+class SlabAllocatorTest {
+
+	@Test
+	void testThatBlocksAreRoundedToTheirSizeClass() {
+		final var allocator = new SlabAllocator(SlabAllocator.SLAB_SIZE);
+		final var block = allocator.allocate(100);
+		final var bytes = new byte[100];
+		bytes[99] = 1;
+		block.write(bytes);
+
+		assertEquals(128, allocator.allocated());
+		assertArrayEquals(bytes, block.read());
+
+		allocator.free(block);
+		assertEquals(0, allocator.allocated());
+	}
+
+	@Test
+	void testThatFreedBlocksAreReused() {
+		final var allocator = new SlabAllocator(SlabAllocator.SLAB_SIZE);
+		final var blocks = new ArrayList<SlabAllocator.Block>();
+		for (int i = 0; i < SlabAllocator.SLAB_SIZE / 1024; i++) {
+			blocks.add(allocator.allocate(1024));
+		}
+
+		// the only slab belongs to the 1 KiB size class
+		assertNull(allocator.allocate(1024));
+		assertNull(allocator.allocate(64));
+
+		allocator.free(blocks.get(0));
+		assertNotNull(allocator.allocate(1000));
+	}
+
+	@Test
+	void testThatBlocksLargerThanASlabAreRejected() {
+		final var allocator = new SlabAllocator(4L * SlabAllocator.SLAB_SIZE);
+
+		assertNotNull(allocator.allocate(SlabAllocator.SLAB_SIZE));
+		assertNull(allocator.allocate(SlabAllocator.SLAB_SIZE + 1));
+	}
+
+}
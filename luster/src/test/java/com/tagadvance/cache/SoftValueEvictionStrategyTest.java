@@ -4,7 +4,6 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -17,17 +16,17 @@ class SoftValueEvictionStrategyTest {
 	@Test
 	void testThatNullValuesAreRemoved() {
 		final List<CacheEntry> entries = new ArrayList<>();
-		entries.add(newEntry(Instant.EPOCH, new Object()));
-		entries.add(newEntry(Instant.EPOCH, null));
+		entries.add(newEntry(0L, new Object()));
+		entries.add(newEntry(0L, null));
 
 		new SoftValueEvictionStrategy().evict(entries, Integer.MAX_VALUE);
 
 		assertTrue(entries.stream().noneMatch(e -> e.value() == null));
 	}
 
-	private static CacheEntry newEntry(final Instant creationTime, final Object value) {
+	private static CacheEntry newEntry(final long writeTime, final Object value) {
 		final var entry = mock(SoftCacheEntry.class);
-		when(entry.creationTime()).thenReturn(creationTime);
+		when(entry.writeTime()).thenReturn(writeTime);
 		when(entry.value()).thenReturn(value);
 
 		return entry;
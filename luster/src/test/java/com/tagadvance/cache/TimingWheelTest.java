@@ -0,0 +1,87 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TimingWheel}.
+ */
+class TimingWheelTest {
+
+	@Test
+	void testThatTimersExpireAfterTheirDelay() {
+		final var nanos = new AtomicLong();
+		final var wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, nanos::get);
+		final var count = new AtomicInteger();
+		wheel.schedule(new TimingWheel.Timer(count::incrementAndGet), 100, TimeUnit.MILLISECONDS);
+
+		nanos.set(TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(0, wheel.advance());
+		assertEquals(0, count.get());
+
+		nanos.set(TimeUnit.MILLISECONDS.toNanos(110));
+		assertEquals(1, wheel.advance());
+		assertEquals(1, count.get());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void testThatRescheduledTimersAreDeferred() {
+		final var nanos = new AtomicLong();
+		final var wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, nanos::get);
+		final var count = new AtomicInteger();
+		final var timer = new TimingWheel.Timer(count::incrementAndGet);
+		wheel.schedule(timer, 100, TimeUnit.MILLISECONDS);
+
+		nanos.set(TimeUnit.MILLISECONDS.toNanos(90));
+		wheel.advance();
+		wheel.schedule(timer, 100, TimeUnit.MILLISECONDS);
+		assertEquals(1, wheel.size());
+
+		nanos.set(TimeUnit.MILLISECONDS.toNanos(150));
+		wheel.advance();
+		assertEquals(0, count.get());
+
+		nanos.set(TimeUnit.MILLISECONDS.toNanos(200));
+		wheel.advance();
+		assertEquals(1, count.get());
+	}
+
+	@Test
+	void testThatCancelledTimersDoNotExpire() {
+		final var nanos = new AtomicLong();
+		final var wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, nanos::get);
+		final var count = new AtomicInteger();
+		final var timer = new TimingWheel.Timer(count::incrementAndGet);
+		wheel.schedule(timer, 100, TimeUnit.MILLISECONDS);
+		wheel.cancel(timer);
+
+		nanos.set(TimeUnit.SECONDS.toNanos(1));
+		wheel.advance();
+		assertEquals(0, count.get());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void testThatDistantTimersCascade() {
+		final var nanos = new AtomicLong();
+		final var wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, nanos::get);
+		final var count = new AtomicInteger();
+		wheel.schedule(new TimingWheel.Timer(count::incrementAndGet), 1, TimeUnit.HOURS);
+
+		for (long minutes = 1; minutes < 60; minutes++) {
+			nanos.set(TimeUnit.MINUTES.toNanos(minutes));
+			wheel.advance();
+		}
+		assertEquals(0, count.get());
+
+		nanos.set(TimeUnit.MINUTES.toNanos(61));
+		wheel.advance();
+		assertEquals(1, count.get());
+	}
+
+}
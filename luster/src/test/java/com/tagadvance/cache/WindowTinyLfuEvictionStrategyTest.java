@@ -0,0 +1,157 @@
+package com.tagadvance.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link WindowTinyLfuEvictionStrategy}. The trace tests double as a benchmark
+ * against {@link OldestFirstEvictionStrategy}.
+ */
+class WindowTinyLfuEvictionStrategyTest {
+
+	private static final int CAPACITY = 200;
+
+	private static final int ITEMS = 10_000;
+
+	private static final int REQUESTS = 50_000;
+
+	@Test
+	void testThatSizeIsBounded() throws Exception {
+		final var hitRate = new Simulation(new WindowTinyLfuEvictionStrategy()).run(
+			IntStream.range(0, ITEMS).toArray());
+
+		assertEquals(0D, hitRate);
+	}
+
+	@Test
+	void testZipfianTrace() throws Exception {
+		final var trace = zipfian(new Random(42), REQUESTS);
+		final var tinyLfu = new Simulation(new WindowTinyLfuEvictionStrategy()).run(trace);
+		final var oldestFirst = new Simulation(new OldestFirstEvictionStrategy()).run(trace);
+
+		assertTrue(tinyLfu > oldestFirst,
+			"W-TinyLFU %f <= oldest first %f".formatted(tinyLfu, oldestFirst));
+	}
+
+	@Test
+	void testScanTrace() throws Exception {
+		final var random = new Random(42);
+		final var trace = zipfian(random, REQUESTS);
+		// every 5,000 requests a batch job walks 1,000 keys that are never seen again
+		var scanKey = ITEMS;
+		for (int i = 0; i < trace.length; i += 5_000) {
+			for (int j = 0; j < 1_000 && i + j < trace.length; j++) {
+				trace[i + j] = scanKey++;
+			}
+		}
+
+		final var tinyLfu = new Simulation(new WindowTinyLfuEvictionStrategy()).run(trace);
+		final var oldestFirst = new Simulation(new OldestFirstEvictionStrategy()).run(trace);
+
+		assertTrue(tinyLfu > oldestFirst,
+			"W-TinyLFU %f <= oldest first %f".formatted(tinyLfu, oldestFirst));
+	}
+
+	@Test
+	void testThatEveryCandidateOfABatchIsCompared() throws Exception {
+		final var method = Integer.class.getMethod("valueOf", int.class);
+		final var strategy = new WindowTinyLfuEvictionStrategy();
+		final Map<Integer, CacheEntry> map = new HashMap<>();
+		final Function<Integer, CacheEntry> insert = i -> {
+			final var entry = new DefaultCacheEntry(CacheKey.of(method, new Object[]{i}), i);
+			map.put(i, entry);
+			strategy.onInsert(entry);
+
+			return entry;
+		};
+
+		// 100 warm entries and one hot entry are recorded before the first eviction
+		for (int i = 0; i < 100; i++) {
+			final var entry = insert.apply(i);
+			strategy.onAccess(entry);
+			strategy.onAccess(entry);
+		}
+		final var hot = insert.apply(100);
+		for (int i = 0; i < 9; i++) {
+			strategy.onAccess(hot);
+		}
+		strategy.evict(map.values(), 100);
+
+		// a batch of three: the hot entry leaves the window ahead of two cold entries
+		insert.apply(101);
+		insert.apply(102);
+		insert.apply(103);
+		strategy.evict(map.values(), 100);
+
+		assertEquals(100, map.size());
+		assertTrue(map.containsKey(100), "the hot candidate is admitted");
+		assertFalse(map.containsKey(101), "a cold candidate is admitted");
+		assertFalse(map.containsKey(102), "a cold candidate is admitted");
+		assertTrue(map.containsKey(2), "a warm entry is evicted for a cold candidate");
+	}
+
+	private static int[] zipfian(final Random random, final int length) {
+		final var cumulative = new double[ITEMS];
+		var sum = 0D;
+		for (int i = 0; i < ITEMS; i++) {
+			sum += 1D / (i + 1);
+			cumulative[i] = sum;
+		}
+
+		final var trace = new int[length];
+		for (int i = 0; i < length; i++) {
+			final var target = random.nextDouble() * sum;
+			final var index = Arrays.binarySearch(cumulative, target);
+			trace[i] = index < 0 ? -index - 1 : index;
+		}
+
+		return trace;
+	}
+
+	private static final class Simulation {
+
+		private final Map<Integer, CacheEntry> map = new HashMap<>();
+
+		private final EvictionStrategy strategy;
+
+		private final Method method;
+
+		private Simulation(final EvictionStrategy strategy) throws NoSuchMethodException {
+			this.strategy = strategy;
+			this.method = Integer.class.getMethod("valueOf", int.class);
+		}
+
+		private double run(final int[] trace) {
+			var hits = 0;
+			for (final var item : trace) {
+				final var entry = map.get(item);
+				if (entry != null) {
+					hits++;
+					strategy.onAccess(entry);
+				} else {
+					final var key = CacheKey.of(method, new Object[]{item});
+					final var newEntry = new DefaultCacheEntry(key, item);
+					map.put(item, newEntry);
+					strategy.onInsert(newEntry);
+					strategy.evict(map.values(), CAPACITY);
+				}
+
+				assertTrue(map.size() <= CAPACITY, "size %d".formatted(map.size()));
+			}
+
+			return (double) hits / trace.length;
+		}
+
+	}
+
+}